@@ -0,0 +1,18 @@
+package com.shlee.querydsl.benchmark;
+
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * offset 100000 페이지까지 채울 수 있도록 회원을 최소 DEEP_MEMBER_COUNT 건 넣는다.
+ */
+@State(Scope.Benchmark)
+public class DeepPageDataState extends MemberDataState {
+
+    static final int DEEP_MEMBER_COUNT = 120_000;
+
+    @Override
+    int memberCount() {
+        return Math.max(MEMBER_COUNT, DEEP_MEMBER_COUNT);
+    }
+}
@@ -0,0 +1,49 @@
+package com.shlee.querydsl.benchmark;
+
+import com.shlee.querydsl.dto.MemberSearchCondition;
+import com.shlee.querydsl.dto.MemberTeamDTO;
+import com.shlee.querydsl.repository.MemberSearchQuery;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+
+/**
+ * offset 페이지: 한 번에 조인 + projection vs deferred join (id 먼저, 그 id 들만 조인)
+ * 조건 없음(전체) / 나이 범위 두 가지, 페이지 크기 20
+ */
+@State(Scope.Benchmark)
+public class DeferredJoinBenchmark {
+
+    @Param({"1", "1000", "100000"})
+    long offset;
+
+    @Param({"all", "age"})
+    String condition;
+
+    @Param({"20"})
+    int size;
+
+    @Benchmark
+    public List<MemberTeamDTO> direct(DeepPageDataState state) {
+        return MemberSearchQuery.of(state.queryFactory, searchCondition()).fetchPage(offset, size);
+    }
+
+    @Benchmark
+    public List<MemberTeamDTO> deferred(DeepPageDataState state) {
+        return MemberSearchQuery.of(state.queryFactory, searchCondition()).fetchPageDeferred(offset, size);
+    }
+
+    private MemberSearchCondition searchCondition() {
+        // 모든 행이 걸리지만 age 컬럼을 읽어야 해서 1단계도 PK 인덱스만으로 끝나지 않는다
+        if ("age".equals(condition)) {
+            MemberSearchCondition ageRange = new MemberSearchCondition();
+            ageRange.setAgeGoe(0);
+            ageRange.setAgeLoe(99);
+            return ageRange;
+        }
+        return new MemberSearchCondition();
+    }
+}
@@ -0,0 +1,16 @@
+package com.shlee.querydsl.benchmark;
+
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * 팀만 넣고 회원은 비워 둔다 (insert 벤치마크가 직접 채운다).
+ */
+@State(Scope.Benchmark)
+public class EmptyMemberDataState extends MemberDataState {
+
+    @Override
+    int memberCount() {
+        return 0;
+    }
+}
@@ -0,0 +1,65 @@
+package com.shlee.querydsl.benchmark;
+
+import com.shlee.querydsl.entity.Member;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * member 전체를 영속성 컨텍스트에 올려 둔 트랜잭션에서 flush
+ * - flushUnchanged: 바뀐 member 없음
+ * - flushChanged: CHANGED_COUNT 명의 age 를 바꾸고 flush
+ * 향상 전에는 flush 마다 모든 member 의 스냅샷을 비교하고, 향상 후에는 setter 가 기록한 member 만 본다.
+ * 향상 전/후 비교: ./gradlew jmh -PjmhIncludes=FlushBenchmark 와 ./gradlew jmh -PjmhIncludes=FlushBenchmark -PnoEnhance
+ * 트랜잭션은 iteration 마다 새로 열고 끝나면 롤백한다 (바뀐 age 가 쌓이지 않게).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class FlushBenchmark {
+
+    private static final int CHANGED_COUNT = 1_000;
+
+    private PlatformTransactionManager transactionManager;
+    private TransactionStatus transaction;
+    private List<Member> members;
+
+    @Setup(Level.Iteration)
+    public void setUp(MemberDataState state) {
+        transactionManager = state.context.getBean(PlatformTransactionManager.class);
+        transaction = transactionManager.getTransaction(new DefaultTransactionDefinition());
+        members = state.em.createQuery("select m from Member m", Member.class).getResultList();
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        transactionManager.rollback(transaction);
+    }
+
+    @Benchmark
+    public void flushUnchanged(MemberDataState state) {
+        state.em.flush();
+    }
+
+    @Benchmark
+    public void flushChanged(MemberDataState state) {
+        int step = members.size() / CHANGED_COUNT;
+        for (int i = 0; i < CHANGED_COUNT; i++) {
+            Member member = members.get(i * step);
+            member.setAge(member.getAge() + 1);
+        }
+        state.em.flush();
+    }
+}
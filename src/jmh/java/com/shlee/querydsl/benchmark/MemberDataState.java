@@ -0,0 +1,114 @@
+package com.shlee.querydsl.benchmark;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.shlee.querydsl.QuerydslApplication;
+import com.shlee.querydsl.dto.MemberSearchCondition;
+import com.shlee.querydsl.entity.Member;
+import com.shlee.querydsl.entity.Team;
+import com.shlee.querydsl.repository.MemberJpaRepository;
+import com.shlee.querydsl.repository.MemberRepository;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 벤치마크용 스프링 컨텍스트 + 내장 H2 데이터
+ * 팀/회원 수는 -Dbenchmark.teams, -Dbenchmark.members 로 바꿀 수 있다.
+ */
+@State(Scope.Benchmark)
+public class MemberDataState {
+
+    public static final int TEAM_COUNT = Integer.getInteger("benchmark.teams", 50);
+    public static final int MEMBER_COUNT = Integer.getInteger("benchmark.members", 50_000);
+
+    ConfigurableApplicationContext context;
+    EntityManager em;
+    JPAQueryFactory queryFactory;
+    MemberRepository memberRepository;
+    MemberJpaRepository memberJpaRepository;
+    TransactionTemplate transactionTemplate;
+
+    @Setup
+    public void setUp() {
+        // command line 인자로 넘겨야 application.yml 의 mysql 설정보다 우선한다
+        context = new SpringApplicationBuilder(QuerydslApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.profiles.active=benchmark",
+                        "--spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.driver-class-name=org.h2.Driver",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                        "--spring.jpa.properties.hibernate.format_sql=false",
+                        "--spring.jpa.properties.hibernate.use_sql_comments=false",
+                        "--spring.jpa.open-in-view=false",
+                        "--decorator.datasource.p6spy.enable-logging=false",
+                        "--search.count-cache.maximum-size=0",
+                        "--search.result-cache.maximum-size=0",
+                        // 데이터 적재(saveAll)는 SQL 예산을 넘는 게 정상
+                        "--sql-budget.action=log",
+                        "--logging.level.root=warn",
+                        "--logging.level.org.hibernate.SQL=warn",
+                        "--logging.level.org.hibernate.type=warn");
+
+        em = SharedEntityManagerCreator.createSharedEntityManager(context.getBean(EntityManagerFactory.class));
+        queryFactory = new JPAQueryFactory(em);
+        memberRepository = context.getBean(MemberRepository.class);
+        memberJpaRepository = context.getBean(MemberJpaRepository.class);
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+
+        transactionTemplate.executeWithoutResult(status -> load());
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    private void load() {
+        List<Team> teams = new ArrayList<>();
+        for (int i = 0; i < TEAM_COUNT; i++) {
+            Team team = new Team("team" + i);
+            em.persist(team);
+            teams.add(team);
+        }
+        List<Member> members = new ArrayList<>();
+        for (int i = 0; i < memberCount(); i++) {
+            members.add(new Member("member" + i, i % 100, teams.get(i % TEAM_COUNT)));
+        }
+        memberJpaRepository.saveAll(members);
+    }
+
+    int memberCount() {
+        return MEMBER_COUNT;
+    }
+
+    // 팀 하나 + 나이 범위 -> 수백 건 수준의 선택적인 검색
+    MemberSearchCondition selectiveCondition() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("team7");
+        condition.setAgeGoe(20);
+        condition.setAgeLoe(40);
+        return condition;
+    }
+
+    // 나이 범위만 -> 전체의 절반 정도가 걸리는 넓은 검색 (페이징용)
+    MemberSearchCondition wideCondition() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(20);
+        condition.setAgeLoe(69);
+        return condition;
+    }
+}
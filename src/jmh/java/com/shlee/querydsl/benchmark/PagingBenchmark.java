@@ -0,0 +1,33 @@
+package com.shlee.querydsl.benchmark;
+
+import com.shlee.querydsl.dto.MemberTeamDTO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+/**
+ * searchPageSimple(count 항상 실행) vs searchPageComplex(필요할 때만 count)
+ * count 캐시는 MemberDataState 에서 꺼져 있다.
+ */
+@State(Scope.Benchmark)
+public class PagingBenchmark {
+
+    @Param({"0", "100"})
+    int page;
+
+    @Param({"20"})
+    int size;
+
+    @Benchmark
+    public Page<MemberTeamDTO> searchPageSimple(MemberDataState state) {
+        return state.memberRepository.searchPageSimple(state.wideCondition(), PageRequest.of(page, size));
+    }
+
+    @Benchmark
+    public Page<MemberTeamDTO> searchPageComplex(MemberDataState state) {
+        return state.memberRepository.searchPageComplex(state.wideCondition(), PageRequest.of(page, size));
+    }
+}
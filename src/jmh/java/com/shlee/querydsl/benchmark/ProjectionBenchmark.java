@@ -0,0 +1,79 @@
+package com.shlee.querydsl.benchmark;
+
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.Projections;
+import com.shlee.querydsl.dto.MemberTeamDTO;
+import com.shlee.querydsl.dto.QMemberTeamDTO;
+import com.shlee.querydsl.repository.FastProjections;
+import org.openjdk.jmh.annotations.Benchmark;
+
+import java.util.List;
+
+import static com.shlee.querydsl.entity.QMember.member;
+import static com.shlee.querydsl.entity.QTeam.team;
+
+/**
+ * DTO 조회 방식 비교 (QuerydslBasicTest 의 findDTOBy... 와 같은 방식)
+ * 같은 1000 건을 @QueryProjection / setter / field / 생성자로 만든다.
+ * fast* 는 FastProjections (행 변환만 따로 비교하려면 ProjectionMappingBenchmark)
+ */
+public class ProjectionBenchmark {
+
+    private static final int ROWS = 1000;
+
+    @Benchmark
+    public List<MemberTeamDTO> queryProjection(MemberDataState state) {
+        return fetch(state, new QMemberTeamDTO(
+                member.id, member.username, member.age, team.id, team.name));
+    }
+
+    @Benchmark
+    public List<MemberTeamDTO> bean(MemberDataState state) {
+        return fetch(state, Projections.bean(MemberTeamDTO.class,
+                member.id.as("memberId"), member.username, member.age,
+                team.id.as("teamId"), team.name.as("teamName")));
+    }
+
+    @Benchmark
+    public List<MemberTeamDTO> fields(MemberDataState state) {
+        return fetch(state, Projections.fields(MemberTeamDTO.class,
+                member.id.as("memberId"), member.username, member.age,
+                team.id.as("teamId"), team.name.as("teamName")));
+    }
+
+    @Benchmark
+    public List<MemberTeamDTO> constructor(MemberDataState state) {
+        return fetch(state, Projections.constructor(MemberTeamDTO.class,
+                member.id, member.username, member.age, team.id, team.name));
+    }
+
+    @Benchmark
+    public List<MemberTeamDTO> fastBean(MemberDataState state) {
+        return fetch(state, FastProjections.bean(MemberTeamDTO.class,
+                member.id.as("memberId"), member.username, member.age,
+                team.id.as("teamId"), team.name.as("teamName")));
+    }
+
+    @Benchmark
+    public List<MemberTeamDTO> fastFields(MemberDataState state) {
+        return fetch(state, FastProjections.fields(MemberTeamDTO.class,
+                member.id.as("memberId"), member.username, member.age,
+                team.id.as("teamId"), team.name.as("teamName")));
+    }
+
+    @Benchmark
+    public List<MemberTeamDTO> fastConstructor(MemberDataState state) {
+        return fetch(state, FastProjections.constructor(MemberTeamDTO.class,
+                member.id, member.username, member.age, team.id, team.name));
+    }
+
+    private static List<MemberTeamDTO> fetch(MemberDataState state, Expression<MemberTeamDTO> projection) {
+        return state.queryFactory
+                .select(projection)
+                .from(member)
+                .join(member.team, team)
+                .orderBy(member.id.asc())
+                .limit(ROWS)
+                .fetch();
+    }
+}
@@ -0,0 +1,86 @@
+package com.shlee.querydsl.benchmark;
+
+import com.querydsl.core.types.FactoryExpression;
+import com.querydsl.core.types.Projections;
+import com.shlee.querydsl.dto.MemberTeamDTO;
+import com.shlee.querydsl.dto.QMemberTeamDTO;
+import com.shlee.querydsl.repository.FastProjections;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.shlee.querydsl.entity.QMember.member;
+import static com.shlee.querydsl.entity.QTeam.team;
+
+/**
+ * DB 없이 행(Object[]) -> MemberTeamDTO 변환만 비교 (행 하나당 ns, gc.alloc.rate.norm 은 행 하나당 byte)
+ * 쿼리에 넘기는 것과 같은 FactoryExpression 의 newInstance 를 호출한다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ProjectionMappingBenchmark {
+
+    @Param({"queryProjection", "bean", "fields", "constructor", "fastBean", "fastFields", "fastConstructor"})
+    public String projection;
+
+    private FactoryExpression<MemberTeamDTO> factory;
+    // 같은 행만 반복하면 분기 예측이 너무 좋아지므로 team 이 있는 행 / 없는 행을 섞는다
+    private Object[][] rows;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        factory = factory(projection);
+        rows = new Object[16][];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = i % 4 == 0
+                    ? new Object[]{(long) i, "member" + i, i, null, null}
+                    : new Object[]{(long) i, "member" + i, i, (long) (i % 3), "team" + (i % 3)};
+        }
+    }
+
+    @Benchmark
+    public MemberTeamDTO newInstance() {
+        Object[] row = rows[next++ & (rows.length - 1)];
+        return factory.newInstance(row);
+    }
+
+    private static FactoryExpression<MemberTeamDTO> factory(String projection) {
+        switch (projection) {
+            case "queryProjection":
+                return new QMemberTeamDTO(member.id, member.username, member.age, team.id, team.name);
+            case "bean":
+                return Projections.bean(MemberTeamDTO.class,
+                        member.id.as("memberId"), member.username, member.age,
+                        team.id.as("teamId"), team.name.as("teamName"));
+            case "fields":
+                return Projections.fields(MemberTeamDTO.class,
+                        member.id.as("memberId"), member.username, member.age,
+                        team.id.as("teamId"), team.name.as("teamName"));
+            case "constructor":
+                return Projections.constructor(MemberTeamDTO.class,
+                        member.id, member.username, member.age, team.id, team.name);
+            case "fastBean":
+                return FastProjections.bean(MemberTeamDTO.class,
+                        member.id.as("memberId"), member.username, member.age,
+                        team.id.as("teamId"), team.name.as("teamName"));
+            case "fastFields":
+                return FastProjections.fields(MemberTeamDTO.class,
+                        member.id.as("memberId"), member.username, member.age,
+                        team.id.as("teamId"), team.name.as("teamName"));
+            case "fastConstructor":
+                return FastProjections.constructor(MemberTeamDTO.class,
+                        member.id, member.username, member.age, team.id, team.name);
+            default:
+                throw new IllegalArgumentException(projection);
+        }
+    }
+}
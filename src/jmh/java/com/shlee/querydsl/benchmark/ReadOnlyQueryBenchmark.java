@@ -0,0 +1,102 @@
+package com.shlee.querydsl.benchmark;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.shlee.querydsl.entity.Member;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.shlee.querydsl.entity.QMember.member;
+
+/**
+ * 쓰기 트랜잭션에서 member 전체를 엔티티로 읽고 flush 까지 (공용 JPAQueryFactory)
+ * - readWrite: member 마다 스냅샷, flush 때 전부 비교
+ * - readOnlyQueries: @ReadOnlyQueries 메서드(findAll_Querydsl) -> 스냅샷 없음, flush 때 비교 대상에서 빠짐
+ * 읽기 전용 트랜잭션은 스프링이 이미 세션 전체를 읽기 전용으로 열므로 비교하지 않는다
+ * retainedBytesPerMember 는 iteration 마다 한 번, 읽은 member 를 영속성 컨텍스트에 둔 채 GC 한 heap 과 clear 후 GC 한 heap 의 차이 / member 수
+ * (AuxCounters SUM 이라 결과 표에는 iteration 수만큼 더해져 나온다)
+ * 바이트코드 향상된 엔티티 기준이다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ReadOnlyQueryBenchmark {
+
+    @Param({"readWrite", "readOnlyQueries"})
+    public String mode;
+
+    private JPAQueryFactory queryFactory;
+    private TransactionTemplate tx;
+
+    @Setup
+    public void setUp(MemberDataState state) {
+        queryFactory = state.context.getBean(JPAQueryFactory.class);
+        tx = new TransactionTemplate(state.context.getBean(PlatformTransactionManager.class));
+    }
+
+    @Benchmark
+    public int loadAndFlush(MemberDataState state, Retained retained) {
+        retained.retainedBytesPerMember = retained.measured;
+        return tx.execute(status -> {
+            List<Member> members = load(state);
+            state.em.flush();
+            return members.size();
+        });
+    }
+
+    // 2차 캐시에 넣지 않는다 -> 캐시 크기/만료에 따른 heap 변화가 retained 측정에 섞이지 않게
+    private List<Member> load(MemberDataState state) {
+        state.em.unwrap(Session.class).setCacheMode(CacheMode.IGNORE);
+        if ("readOnlyQueries".equals(mode)) {
+            return state.memberJpaRepository.findAll_Querydsl();
+        }
+        return queryFactory.selectFrom(member).fetch();
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Retained {
+
+        private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+
+        public long retainedBytesPerMember;
+        // JMH 가 iteration setup 뒤에 counter 를 0 으로 되돌리므로 따로 두고 benchmark 에서 옮긴다
+        private long measured;
+
+        @Setup(Level.Iteration)
+        public void measure(ReadOnlyQueryBenchmark benchmark, MemberDataState state) {
+            measured = benchmark.tx.execute(status -> {
+                int loaded = benchmark.load(state).size();
+                long held = usedHeap();
+                state.em.clear();
+                return (held - usedHeap()) / loaded;
+            });
+        }
+
+        // GC 한 번으로는 다 줄지 않을 때가 있어서 여러 번 돌리고 가장 작은 값
+        private static long usedHeap() {
+            long used = Long.MAX_VALUE;
+            for (int i = 0; i < 5; i++) {
+                System.gc();
+                used = Math.min(used, MEMORY.getHeapMemoryUsage().getUsed());
+            }
+            return used;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.shlee.querydsl.benchmark;
+
+import com.shlee.querydsl.entity.Member;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.shlee.querydsl.entity.QMember.member;
+
+/**
+ * member rowCount 건 저장 (id 는 pooled-lo, jdbc batch_size 100)
+ * - saveEach: save 를 트랜잭션 밖에서 한 건씩 -> 건마다 트랜잭션 + insert 한 번
+ * - saveEachInTransaction: 한 트랜잭션에서 save 한 건씩 -> insert 는 커밋 때 묶이지만 영속성 컨텍스트에 전부 쌓인다
+ * - saveAll: batch 크기마다 flush + clear (rowCount 가 클수록 saveEachInTransaction 과 차이가 난다)
+ * ./gradlew jmh -PjmhIncludes=SaveBenchmark
+ * team 없이 저장한다 (team_stats 갱신 비용은 빼고 insert 만 비교). 저장한 member 는 iteration 마다 지운다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SaveBenchmark {
+
+    @Param({"1000", "10000"})
+    int rowCount;
+
+    @TearDown(Level.Iteration)
+    public void deleteSaved(EmptyMemberDataState state) {
+        state.transactionTemplate.executeWithoutResult(status -> state.queryFactory
+                .delete(member)
+                .where(member.username.startsWith("saved"))
+                .execute());
+    }
+
+    @Benchmark
+    public void saveEach(EmptyMemberDataState state) {
+        for (Member m : members()) {
+            state.memberJpaRepository.save(m);
+        }
+    }
+
+    @Benchmark
+    public void saveEachInTransaction(EmptyMemberDataState state) {
+        state.transactionTemplate.executeWithoutResult(status -> {
+            for (Member m : members()) {
+                state.memberJpaRepository.save(m);
+            }
+        });
+    }
+
+    @Benchmark
+    public void saveAll(EmptyMemberDataState state) {
+        state.memberJpaRepository.saveAll(members());
+    }
+
+    private List<Member> members() {
+        List<Member> members = new ArrayList<>(rowCount);
+        for (int i = 0; i < rowCount; i++) {
+            members.add(new Member("saved" + i, i % 100));
+        }
+        return members;
+    }
+}
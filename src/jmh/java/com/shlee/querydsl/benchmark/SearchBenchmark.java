@@ -0,0 +1,29 @@
+package com.shlee.querydsl.benchmark;
+
+import com.shlee.querydsl.dto.MemberTeamDTO;
+import org.openjdk.jmh.annotations.Benchmark;
+
+import java.util.List;
+
+/**
+ * MemberJpaRepository 동적 쿼리 두 가지 방식 비교
+ * BooleanBuilder vs where 파라미터(BooleanExpression)
+ * + MemberRepository.search (shape 별로 미리 만든 JPQL 재사용)
+ */
+public class SearchBenchmark {
+
+    @Benchmark
+    public List<MemberTeamDTO> booleanBuilder(MemberDataState state) {
+        return state.memberJpaRepository.searchByBuilder(state.selectiveCondition());
+    }
+
+    @Benchmark
+    public List<MemberTeamDTO> whereParameter(MemberDataState state) {
+        return state.memberJpaRepository.search(state.selectiveCondition());
+    }
+
+    @Benchmark
+    public List<MemberTeamDTO> shapeCached(MemberDataState state) {
+        return state.memberRepository.search(state.selectiveCondition());
+    }
+}
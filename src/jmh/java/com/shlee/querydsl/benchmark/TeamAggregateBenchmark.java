@@ -0,0 +1,62 @@
+package com.shlee.querydsl.benchmark;
+
+import com.querydsl.jpa.JPAExpressions;
+import com.shlee.querydsl.dto.MemberTeamDTO;
+import com.shlee.querydsl.dto.QMemberTeamDTO;
+import com.shlee.querydsl.entity.QMember;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+
+import static com.shlee.querydsl.entity.QMember.member;
+import static com.shlee.querydsl.entity.QTeam.team;
+
+/**
+ * team 평균 이상 / team 별 최고령: 행마다 상관 서브쿼리 vs team 별 집계(derived table) 조인 한 번
+ * 서브쿼리는 member 수 x team 크기 만큼 읽으므로 -Dbenchmark.members 를 줄여서 비교해도 차이가 보인다.
+ */
+@State(Scope.Benchmark)
+public class TeamAggregateBenchmark {
+
+    private static final QMember memberSub = new QMember("memberSub");
+
+    @Benchmark
+    public List<MemberTeamDTO> olderThanAverageSubQuery(MemberDataState state) {
+        return state.queryFactory
+                .select(new QMemberTeamDTO(member.id, member.username, member.age, team.id, team.name))
+                .from(member)
+                .join(member.team, team)
+                .where(member.age.gt(JPAExpressions
+                        .select(memberSub.age.avg())
+                        .from(memberSub)
+                        .where(memberSub.team.eq(member.team))))
+                .orderBy(member.id.asc())
+                .fetch();
+    }
+
+    @Benchmark
+    public List<MemberTeamDTO> olderThanAverageDerived(MemberDataState state) {
+        return state.memberRepository.findOlderThanTeamAverage();
+    }
+
+    @Benchmark
+    public List<MemberTeamDTO> oldestPerTeamSubQuery(MemberDataState state) {
+        return state.queryFactory
+                .select(new QMemberTeamDTO(member.id, member.username, member.age, team.id, team.name))
+                .from(member)
+                .join(member.team, team)
+                .where(member.age.eq(JPAExpressions
+                        .select(memberSub.age.max())
+                        .from(memberSub)
+                        .where(memberSub.team.eq(member.team))))
+                .orderBy(member.id.asc())
+                .fetch();
+    }
+
+    @Benchmark
+    public List<MemberTeamDTO> oldestPerTeamDerived(MemberDataState state) {
+        return state.memberRepository.findOldestPerTeam();
+    }
+}
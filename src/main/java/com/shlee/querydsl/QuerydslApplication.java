@@ -2,6 +2,8 @@ package com.shlee.querydsl;
 
 import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.shlee.querydsl.config.ReadOnlyAwareJPAQueryFactory;
+import com.shlee.querydsl.config.ReadOnlyQueryMode;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
@@ -17,8 +19,8 @@ public class QuerydslApplication {
 
 
 	@Bean
-	JPAQueryFactory jpaQueryFactory(EntityManager em){
-		return new JPAQueryFactory(em);
+	JPAQueryFactory jpaQueryFactory(EntityManager em, ReadOnlyQueryMode readOnlyQueryMode){
+		return new ReadOnlyAwareJPAQueryFactory(em, readOnlyQueryMode);
 	}
 
 }
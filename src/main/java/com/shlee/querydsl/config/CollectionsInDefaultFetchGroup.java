@@ -0,0 +1,28 @@
+package com.shlee.querydsl.config;
+
+import org.hibernate.boot.SessionFactoryBuilder;
+import org.hibernate.boot.internal.MetadataImpl;
+import org.hibernate.boot.internal.SessionFactoryBuilderImpl;
+import org.hibernate.boot.internal.SessionFactoryOptionsBuilder;
+import org.hibernate.boot.spi.MetadataImplementor;
+import org.hibernate.boot.spi.SessionFactoryBuilderFactory;
+import org.hibernate.boot.spi.SessionFactoryBuilderImplementor;
+
+/**
+ * 바이트코드 향상된 엔티티의 컬렉션(Team.members)을 lazy 속성이 아닌 기본 fetch group 으로
+ * - lazy 속성이면 처음 읽을 때 dirty tracking 용으로 size() 를 기록한다 -> extra lazy 라서 count 쿼리 (Member.changeTeam 에서 발생)
+ * - 기본 fetch group 이면 엔티티 로딩 때 초기화 전 컬렉션 wrapper 만 넣어 둔다 (향상 전과 같음, 컬렉션은 여전히 lazy)
+ * 설정 property 가 없어서 SessionFactoryOptionsBuilder 를 직접 만든다 (META-INF/services 로 등록)
+ */
+public class CollectionsInDefaultFetchGroup implements SessionFactoryBuilderFactory {
+
+    @Override
+    public SessionFactoryBuilder getSessionFactoryBuilder(MetadataImplementor metadata,
+                                                          SessionFactoryBuilderImplementor defaultBuilder) {
+        SessionFactoryOptionsBuilder options = new SessionFactoryOptionsBuilder(
+                metadata.getMetadataBuildingOptions().getServiceRegistry(),
+                ((MetadataImpl) metadata).getBootstrapContext());
+        options.enableCollectionInDefaultFetchGroup(true);
+        return new SessionFactoryBuilderImpl(metadata, options);
+    }
+}
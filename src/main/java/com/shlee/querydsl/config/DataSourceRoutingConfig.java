@@ -0,0 +1,79 @@
+package com.shlee.querydsl.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.transaction.TransactionManagerCustomizers;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * datasource-routing.enabled: true 면 spring.datasource 를 primary 로, datasource-routing.replicas 를 replica 로 쓴다.
+ * (false 면 스프링 부트 기본 DataSource 하나)
+ */
+@Configuration
+@EnableConfigurationProperties(DataSourceRoutingProperties.class)
+@ConditionalOnProperty(prefix = "datasource-routing", name = "enabled", havingValue = "true")
+public class DataSourceRoutingConfig {
+
+    @Bean
+    public ReplicaRoutingDataSource dataSource(DataSourceProperties primaryProperties,
+                                               DataSourceRoutingProperties routing) {
+        HikariDataSource primary = primaryProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        primary.setPoolName("primary");
+
+        List<DataSource> replicas = new ArrayList<>();
+        for (int i = 0; i < routing.getReplicas().size(); i++) {
+            DataSourceRoutingProperties.Replica properties = routing.getReplicas().get(i);
+            HikariDataSource replica = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .url(properties.getUrl())
+                    .username(properties.getUsername())
+                    .password(properties.getPassword())
+                    .driverClassName(properties.getDriverClassName())
+                    .build();
+            replica.setPoolName("replica-" + i);
+            replica.setReadOnly(true);
+            replica.setConnectionTimeout(routing.getReplicaConnectionTimeout().toMillis());
+            replicas.add(replica);
+        }
+
+        return new ReplicaRoutingDataSource(primary, replicas,
+                routing.getReadYourWritesWindow(), routing.getHealthCheckInterval());
+    }
+
+    // JpaTransactionManager 는 트랜잭션의 readOnly 를 올리기 전에(doBegin) 커넥션을 꺼낸다.
+    // 그 자체는 lazy proxy 라 괜찮지만 p6spy 데코레이터가 getConnection 에서 getMetaData 를 불러 그때 primary 가 골라진다
+    // -> doBegin 동안 readOnly 를 미리 올려 둔다 (끝나면 prepareSynchronization 이 다시 설정)
+    @Bean
+    public JpaTransactionManager transactionManager(ObjectProvider<TransactionManagerCustomizers> customizers) {
+        JpaTransactionManager transactionManager = new ReadOnlyAwareJpaTransactionManager();
+        customizers.ifAvailable(it -> it.customize(transactionManager));
+        return transactionManager;
+    }
+
+    private static class ReadOnlyAwareJpaTransactionManager extends JpaTransactionManager {
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+            TransactionSynchronizationManager.setCurrentTransactionReadOnly(definition.isReadOnly());
+            try {
+                super.doBegin(transaction, definition);
+            } finally {
+                TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+            }
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.shlee.querydsl.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@ConfigurationProperties("datasource-routing")
+public class DataSourceRoutingProperties {
+
+    private boolean enabled;
+    // 커밋 후 이 시간 동안은 읽기도 primary (replica 복제 지연)
+    private Duration readYourWritesWindow = Duration.ofSeconds(2);
+    private Duration healthCheckInterval = Duration.ofSeconds(5);
+    // 죽은 replica 에서 오래 기다리지 않도록
+    private Duration replicaConnectionTimeout = Duration.ofSeconds(1);
+    private List<Replica> replicas = new ArrayList<>();
+
+    @Data
+    public static class Replica {
+        private String url;
+        private String username;
+        private String password;
+        private String driverClassName;
+    }
+}
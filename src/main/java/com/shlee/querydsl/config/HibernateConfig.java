@@ -0,0 +1,64 @@
+package com.shlee.querydsl.config;
+
+import com.shlee.querydsl.repository.MemberChangeTracker;
+import com.shlee.querydsl.repository.TeamStatsMaintainer;
+import org.hibernate.boot.Metadata;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Collections;
+
+@Configuration
+public class HibernateConfig {
+
+    // 스프링 빈을 하이버네이트 이벤트 리스너 / StatementInspector 로 등록
+    @Bean
+    public HibernatePropertiesCustomizer memberChangeTrackerCustomizer(MemberChangeTracker tracker,
+                                                                       TeamStatsMaintainer teamStatsMaintainer) {
+        return properties -> {
+            properties.put(AvailableSettings.STATEMENT_INSPECTOR, tracker);
+            properties.put("hibernate.integrator_provider",
+                    (IntegratorProvider) () -> Collections.singletonList(new ListenerIntegrator(tracker, teamStatsMaintainer)));
+        };
+    }
+
+    private static class ListenerIntegrator implements Integrator {
+
+        private final MemberChangeTracker tracker;
+        private final TeamStatsMaintainer teamStatsMaintainer;
+
+        ListenerIntegrator(MemberChangeTracker tracker, TeamStatsMaintainer teamStatsMaintainer) {
+            this.tracker = tracker;
+            this.teamStatsMaintainer = teamStatsMaintainer;
+        }
+
+        @Override
+        public void integrate(Metadata metadata, SessionFactoryImplementor sessionFactory,
+                              SessionFactoryServiceRegistry serviceRegistry) {
+            EventListenerRegistry registry = serviceRegistry.getService(EventListenerRegistry.class);
+            registry.appendListeners(EventType.PERSIST, tracker);
+            registry.appendListeners(EventType.MERGE, tracker);
+            registry.appendListeners(EventType.PRE_INSERT, tracker);
+            registry.appendListeners(EventType.POST_INSERT, tracker);
+            registry.appendListeners(EventType.PRE_UPDATE, tracker);
+            registry.appendListeners(EventType.POST_UPDATE, tracker);
+            registry.appendListeners(EventType.PRE_DELETE, tracker);
+            registry.appendListeners(EventType.POST_DELETE, tracker);
+            registry.appendListeners(EventType.POST_INSERT, teamStatsMaintainer);
+            registry.appendListeners(EventType.POST_UPDATE, teamStatsMaintainer);
+            registry.appendListeners(EventType.POST_DELETE, teamStatsMaintainer);
+        }
+
+        @Override
+        public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+        }
+    }
+}
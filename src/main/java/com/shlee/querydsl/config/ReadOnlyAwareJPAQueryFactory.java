@@ -0,0 +1,27 @@
+package com.shlee.querydsl.config;
+
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+
+import javax.persistence.EntityManager;
+
+/**
+ * select/selectFrom/from/query 로 만드는 JPAQuery 에 ReadOnlyQueryMode 의 hint 를 붙인다
+ * update/delete/insert 는 그대로
+ */
+public class ReadOnlyAwareJPAQueryFactory extends JPAQueryFactory {
+
+    private final ReadOnlyQueryMode readOnlyQueryMode;
+
+    public ReadOnlyAwareJPAQueryFactory(EntityManager em, ReadOnlyQueryMode readOnlyQueryMode) {
+        super(em);
+        this.readOnlyQueryMode = readOnlyQueryMode;
+    }
+
+    @Override
+    public JPAQuery<?> query() {
+        JPAQuery<?> query = super.query();
+        readOnlyQueryMode.applyHints(query::setHint);
+        return query;
+    }
+}
@@ -0,0 +1,18 @@
+package com.shlee.querydsl.config;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 이 메서드(클래스의 모든 메서드) 안에서 공용 JPAQueryFactory 로 만든 조회가 읽어 온 엔티티는 읽기 전용
+ * 쓰기 트랜잭션에 참여해도 적용된다 -> 바꿔도 update 되지 않으므로 수정할 엔티티를 읽는 메서드에는 붙이지 않는다
+ * @see ReadOnlyQueryMode
+ */
+@Documented
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ReadOnlyQueries {
+}
@@ -0,0 +1,73 @@
+package com.shlee.querydsl.config;
+
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.hibernate.annotations.QueryHints;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.function.BiConsumer;
+
+/**
+ * 읽기 전용 조회 모드 -> @ReadOnlyQueries 범위에서 ReadOnlyAwareJPAQueryFactory 가 조회마다 읽기 전용 hint 를 붙인다
+ * 읽기 전용으로 읽은 엔티티는 dirty checking 용 스냅샷(loadedState)을 남기지 않고 flush 때 비교 대상에서도 빠진다.
+ * - @Transactional(readOnly = true) 트랜잭션은 스프링(HibernateJpaDialect)이 이미 세션 전체를 읽기 전용 + FlushMode.MANUAL 로 연다
+ *   -> 이 모드는 쓰기 트랜잭션에 참여한 조회 메서드용
+ * - flush 는 그대로 -> 쓰기 트랜잭션에서 앞서 바꾼 내용도 조회에 보인다
+ * @ReadOnlyQueries 는 들어올 때의 영속성 컨텍스트에만 적용 -> 안에서 REQUIRES_NEW 로 연 트랜잭션의 조회는 그대로
+ */
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class ReadOnlyQueryMode {
+
+    // @ReadOnlyQueries 메서드에 들어올 때의 트랜잭션 EntityManager (중첩 호출)
+    private static final ThreadLocal<Deque<Object>> SCOPES = new ThreadLocal<>();
+    // 트랜잭션 EntityManager 가 없을 때 (조회마다 새 EntityManager)
+    private static final Object NO_ENTITY_MANAGER = new Object();
+
+    // aspect 는 EntityManagerFactory 보다 먼저 만들어지므로 쓸 때 꺼낸다
+    private final ObjectProvider<EntityManagerFactory> emf;
+
+    @Around("@within(com.shlee.querydsl.config.ReadOnlyQueries) || @annotation(com.shlee.querydsl.config.ReadOnlyQueries)")
+    public Object readOnly(ProceedingJoinPoint joinPoint) throws Throwable {
+        Deque<Object> scopes = SCOPES.get();
+        if (scopes == null) {
+            scopes = new ArrayDeque<>();
+            SCOPES.set(scopes);
+        }
+        scopes.push(currentEntityManager());
+        try {
+            return joinPoint.proceed();
+        } finally {
+            scopes.pop();
+            if (scopes.isEmpty()) {
+                SCOPES.remove();
+            }
+        }
+    }
+
+    // 지금 만드는 조회에 붙일 hint
+    public void applyHints(BiConsumer<String, Object> hints) {
+        if (inScope()) {
+            hints.accept(QueryHints.READ_ONLY, true);
+        }
+    }
+
+    private boolean inScope() {
+        Deque<Object> scopes = SCOPES.get();
+        return scopes != null && scopes.peek() == currentEntityManager();
+    }
+
+    private Object currentEntityManager() {
+        EntityManager em = EntityManagerFactoryUtils.getTransactionalEntityManager(emf.getObject());
+        return em == null ? NO_ENTITY_MANAGER : em;
+    }
+}
@@ -0,0 +1,189 @@
+package com.shlee.querydsl.config;
+
+import com.shlee.querydsl.repository.MemberDataChangedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 읽기 전용 트랜잭션은 replica, 나머지는 primary 로 보낸다.
+ * - replica 는 건강한 것들 중 round-robin, 전부 죽었거나 커넥션을 못 얻으면 primary
+ * - member/team 변경이 커밋된 뒤 read-your-writes 기간 동안은 읽기도 primary (복제 지연)
+ * readOnly 여부는 트랜잭션 시작 후에야 정해지므로 LazyConnectionDataSourceProxy 로 첫 statement 때 커넥션을 고른다.
+ * (JpaTransactionManager 와 p6spy 를 함께 쓰면 그보다 먼저 골라진다 -> DataSourceRoutingConfig.transactionManager)
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends LazyConnectionDataSourceProxy implements Closeable {
+
+    static final String PRIMARY = "primary";
+
+    private final DataSource primary;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final Map<String, DataSource> byKey = new HashMap<>();
+    private final AtomicInteger next = new AtomicInteger();
+    private final long readYourWritesNanos;
+    private volatile long lastWriteNanos;
+    private volatile boolean wrote;
+    private final ScheduledExecutorService healthChecker;
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicaDataSources,
+                                    Duration readYourWritesWindow, Duration healthCheckInterval) {
+        this.primary = primary;
+        this.readYourWritesNanos = readYourWritesWindow.toNanos();
+
+        byKey.put(PRIMARY, primary);
+        for (int i = 0; i < replicaDataSources.size(); i++) {
+            Replica replica = new Replica("replica-" + i, replicaDataSources.get(i));
+            replicas.add(replica);
+            byKey.put(replica.key, replica.dataSource);
+        }
+        Router router = new Router();
+        router.setTargetDataSources(new HashMap<>(byKey));
+        router.setDefaultTargetDataSource(primary);
+        router.afterPropertiesSet();
+        setTargetDataSource(router);
+        afterPropertiesSet();
+
+        this.healthChecker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "replica-health-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = healthCheckInterval.toMillis();
+        healthChecker.scheduleWithFixedDelay(this::checkHealth, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    // 지금 스레드의 트랜잭션이 쓸 대상 (primary, replica-0, ...)
+    String currentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly() || withinReadYourWritesWindow()) {
+            return PRIMARY;
+        }
+        int size = replicas.size();
+        int start = Math.floorMod(next.getAndIncrement(), Math.max(size, 1));
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (replica.healthy) {
+                return replica.key;
+            }
+        }
+        return PRIMARY;
+    }
+
+    private boolean withinReadYourWritesWindow() {
+        return wrote && System.nanoTime() - lastWriteNanos < readYourWritesNanos;
+    }
+
+    void recordWrite() {
+        lastWriteNanos = System.nanoTime();
+        wrote = true;
+    }
+
+    // member/team 이 바뀐 트랜잭션이 커밋되면 그때부터 read-your-writes 기간
+    @EventListener
+    public void onMemberDataChanged(MemberDataChangedEvent event) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    recordWrite();
+                }
+            });
+        } else {
+            recordWrite();
+        }
+    }
+
+    void checkHealth() {
+        for (Replica replica : replicas) {
+            boolean healthy;
+            try (Connection connection = replica.dataSource.getConnection()) {
+                healthy = connection.isValid(1);
+            } catch (SQLException | RuntimeException e) {
+                healthy = false;
+            }
+            if (replica.healthy != healthy) {
+                log.warn("{} is {}", replica.key, healthy ? "back up" : "down, reads fall back to primary");
+            }
+            replica.healthy = healthy;
+        }
+    }
+
+    void markDown(String key) {
+        for (Replica replica : replicas) {
+            if (replica.key.equals(key)) {
+                replica.healthy = false;
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        healthChecker.shutdownNow();
+        closeQuietly(primary);
+        for (Replica replica : replicas) {
+            closeQuietly(replica.dataSource);
+        }
+    }
+
+    private static void closeQuietly(DataSource dataSource) {
+        if (dataSource instanceof Closeable) {
+            try {
+                ((Closeable) dataSource).close();
+            } catch (Exception e) {
+                log.warn("failed to close {}", dataSource, e);
+            }
+        }
+    }
+
+    private static class Replica {
+        private final String key;
+        private final DataSource dataSource;
+        private volatile boolean healthy = true;
+
+        Replica(String key, DataSource dataSource) {
+            this.key = key;
+            this.dataSource = dataSource;
+        }
+    }
+
+    private class Router extends AbstractRoutingDataSource {
+
+        @Override
+        protected Object determineCurrentLookupKey() {
+            return currentLookupKey();
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            String key = currentLookupKey();
+            try {
+                return byKey.get(key).getConnection();
+            } catch (SQLException e) {
+                if (PRIMARY.equals(key)) {
+                    throw e;
+                }
+                // 다음 health check 까지 이 replica 는 건너뛴다
+                log.warn("{} connection failed, falling back to primary", key, e);
+                markDown(key);
+                return primary.getConnection();
+            }
+        }
+    }
+}
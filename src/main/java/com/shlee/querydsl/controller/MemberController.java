@@ -1,21 +1,41 @@
 package com.shlee.querydsl.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.shlee.querydsl.dto.CursorPageDTO;
+import com.shlee.querydsl.dto.EstimatedPageDTO;
 import com.shlee.querydsl.dto.MemberSearchCondition;
 import com.shlee.querydsl.dto.MemberTeamDTO;
 import com.shlee.querydsl.repository.MemberRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.List;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.stream.Stream;
 
 @RestController
 @RequiredArgsConstructor
 public class MemberController {
 
+    private static final int MAX_CURSOR_PAGE_SIZE = 2000;
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private static final int EXPORT_FLUSH_INTERVAL = 500;
+
     private final MemberRepository memberRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final ObjectMapper objectMapper;
 
 
 
@@ -30,4 +50,58 @@ public class MemberController {
         return memberRepository.searchPageComplex(condition, pageable);
     }
 
+    // content 와 count 를 동시에 실행
+    @GetMapping("/v5/members")
+    public Page<MemberTeamDTO> searchMemberV5(MemberSearchCondition condition, Pageable pageable){
+        return memberRepository.searchPageConcurrent(condition, pageable);
+    }
+
+    // total 이 필요 없는 화면 (다음 페이지 여부만)
+    @GetMapping("/members/slice")
+    public Slice<MemberTeamDTO> searchMemberSlice(MemberSearchCondition condition, Pageable pageable) {
+        return memberRepository.searchSlice(condition, pageable);
+    }
+
+    // total 을 search.estimated-count.cap 까지만 센다 (exact=false 면 "cap+")
+    @GetMapping("/members/estimated")
+    public EstimatedPageDTO<MemberTeamDTO> searchMemberEstimated(MemberSearchCondition condition, Pageable pageable) {
+        return memberRepository.searchEstimated(condition, pageable);
+    }
+
+    // cursor 기반 페이징: 응답의 nextCursor를 다음 요청의 cursor로 넘긴다
+    @GetMapping("/v4/members")
+    public CursorPageDTO<MemberTeamDTO> searchMemberV4(MemberSearchCondition condition,
+                                                       @RequestParam(required = false) String cursor,
+                                                       @RequestParam(defaultValue = "20") int size) {
+        return memberRepository.searchByCursor(condition, cursor, Math.min(Math.max(size, 1), MAX_CURSOR_PAGE_SIZE));
+    }
+
+    // 전체 검색 결과를 한 줄에 하나씩(NDJSON) 읽는 즉시 내려보낸다 -> 결과 크기와 무관하게 메모리 일정
+    @GetMapping("/members/export")
+    public ResponseEntity<StreamingResponseBody> exportMembers(MemberSearchCondition condition) {
+        TransactionTemplate readOnlyTx = new TransactionTemplate(transactionManager);
+        readOnlyTx.setReadOnly(true);
+        ObjectWriter writer = objectMapper.writerFor(MemberTeamDTO.class);
+
+        StreamingResponseBody body = out -> readOnlyTx.executeWithoutResult(status -> {
+            try (Stream<MemberTeamDTO> rows = memberRepository.searchStream(condition)) {
+                int[] written = {0};
+                rows.forEach(dto -> writeLine(out, writer, dto, ++written[0]));
+            }
+        });
+        return ResponseEntity.ok().contentType(NDJSON).body(body);
+    }
+
+    private static void writeLine(OutputStream out, ObjectWriter writer, MemberTeamDTO dto, int written) {
+        try {
+            out.write(writer.writeValueAsBytes(dto));
+            out.write('\n');
+            if (written % EXPORT_FLUSH_INTERVAL == 0) {
+                out.flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
 }
@@ -0,0 +1,39 @@
+package com.shlee.querydsl.controller;
+
+import com.shlee.querydsl.monitoring.SecondLevelCacheStatistics;
+import com.shlee.querydsl.monitoring.SqlStatementCounter;
+import com.shlee.querydsl.repository.MemberSearchResultCache;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequiredArgsConstructor
+public class MonitoringController {
+
+    private final SecondLevelCacheStatistics cacheStatistics;
+    private final SqlStatementCounter sqlStatementCounter;
+    private final MemberSearchResultCache searchResultCache;
+
+    @GetMapping("/monitoring/cache-regions")
+    public Map<String, Map<String, Long>> cacheRegions() {
+        return cacheStatistics.regions();
+    }
+
+    // hit / miss / coalesced(같은 조회를 기다린 요청) / hitRate
+    @GetMapping("/monitoring/search-cache")
+    public Map<String, Number> searchCache() {
+        return searchResultCache.stats();
+    }
+
+    @GetMapping("/monitoring/sql-budget")
+    public Map<String, Map<String, Long>> sqlBudget() {
+        Map<String, Map<String, Long>> budget = new LinkedHashMap<>();
+        budget.put("statements", sqlStatementCounter.statementCounts());
+        budget.put("violations", sqlStatementCounter.violationCounts());
+        return budget;
+    }
+}
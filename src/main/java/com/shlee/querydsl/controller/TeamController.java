@@ -0,0 +1,40 @@
+package com.shlee.querydsl.controller;
+
+import com.shlee.querydsl.dto.TeamRosterDTO;
+import com.shlee.querydsl.dto.TeamStatsDTO;
+import com.shlee.querydsl.repository.TeamRepository;
+import com.shlee.querydsl.repository.TeamStatsRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequiredArgsConstructor
+public class TeamController {
+
+    private final TeamRepository teamRepository;
+    private final TeamStatsRepository teamStatsRepository;
+
+    // team 페이지 + 소속 member (쿼리 2번 + count)
+    @GetMapping("/teams")
+    public Page<TeamRosterDTO> teams(Pageable pageable) {
+        return teamRepository.findRosters(pageable);
+    }
+
+    // team 별 member 수 / 평균 / 최소 / 최대 나이 (group by 없이 team_stats 에서)
+    @GetMapping("/teams/stats")
+    public List<TeamStatsDTO> teamStats() {
+        return teamStatsRepository.findAll();
+    }
+
+    @GetMapping("/teams/{teamId}/stats")
+    public ResponseEntity<TeamStatsDTO> teamStats(@PathVariable Long teamId) {
+        return ResponseEntity.of(teamStatsRepository.findByTeamId(teamId));
+    }
+}
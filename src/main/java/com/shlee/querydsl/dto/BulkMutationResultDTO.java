@@ -0,0 +1,40 @@
+package com.shlee.querydsl.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class BulkMutationResultDTO {
+
+    private long affected;
+    private long elapsedMillis;
+    // false 면 중간에 interrupt 되어 남은 chunk 를 처리하지 않았다
+    private boolean completed = true;
+    private List<Chunk> chunks = new ArrayList<>();
+
+    public void add(Chunk chunk) {
+        chunks.add(chunk);
+        affected += chunk.getAffected();
+    }
+
+    @Data
+    public static class Chunk {
+
+        private int index;
+        // 이 chunk 가 맡은 member.id 범위 (양 끝 포함, 바뀐 member 가 없는 범위면 affected 0)
+        private Long fromId;
+        private Long toId;
+        private int affected;
+        private long elapsedMillis;
+
+        public Chunk(int index, Long fromId, Long toId, int affected, long elapsedMillis) {
+            this.index = index;
+            this.fromId = fromId;
+            this.toId = toId;
+            this.affected = affected;
+            this.elapsedMillis = elapsedMillis;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.shlee.querydsl.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class CursorPageDTO<T> {
+
+    private List<T> content;
+    private int size;
+    private boolean hasNext;
+    // 다음 페이지 요청 시 그대로 넘겨주는 토큰 (마지막 페이지면 null)
+    private String nextCursor;
+
+    public CursorPageDTO(List<T> content, int size, boolean hasNext, String nextCursor) {
+        this.content = content;
+        this.size = size;
+        this.hasNext = hasNext;
+        this.nextCursor = nextCursor;
+    }
+}
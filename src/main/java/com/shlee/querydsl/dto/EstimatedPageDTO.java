@@ -0,0 +1,24 @@
+package com.shlee.querydsl.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class EstimatedPageDTO<T> {
+
+    private List<T> content;
+    private int page;
+    private int size;
+    private long total;
+    // false 면 total 은 "total 건 이상" (ex. 10000+)
+    private boolean exact;
+
+    public EstimatedPageDTO(List<T> content, int page, int size, long total, boolean exact) {
+        this.content = content;
+        this.page = page;
+        this.size = size;
+        this.total = total;
+        this.exact = exact;
+    }
+}
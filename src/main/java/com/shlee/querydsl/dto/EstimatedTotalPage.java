@@ -0,0 +1,29 @@
+package com.shlee.querydsl.dto;
+
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * count 를 제때 받지 못한 페이지 (content 는 정확, total 은 모름)
+ * totalElements 는 "최소 이만큼" -> 다음 페이지가 있으면 offset + content 수 + 1
+ * json 에 totalExact: false 가 함께 나간다 (보통 Page 에는 없는 필드)
+ */
+public class EstimatedTotalPage<T> extends PageImpl<T> {
+
+    public EstimatedTotalPage(List<T> content, Pageable pageable, long lowerBound) {
+        super(content, pageable, lowerBound);
+    }
+
+    public boolean isTotalExact() {
+        return false;
+    }
+
+    // PageImpl.map 은 PageImpl 을 돌려줘서 total 을 모른다는 표시가 사라진다
+    @Override
+    public <U> EstimatedTotalPage<U> map(Function<? super T, ? extends U> converter) {
+        return new EstimatedTotalPage<>(getConvertedContent(converter), getPageable(), getTotalElements());
+    }
+}
@@ -2,8 +2,10 @@ package com.shlee.querydsl.dto;
 
 import com.querydsl.core.annotations.QueryProjection;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 @Data
+@NoArgsConstructor
 public class MemberTeamDTO {
 
     private Long memberId;
@@ -23,6 +25,8 @@ public class MemberTeamDTO {
         this.teamName = teamName;
     }
 
-
-
+    // 캐시된 결과를 요청마다 따로 쓰도록 (setter 로 바꿔도 다른 요청에 보이지 않게)
+    public MemberTeamDTO copy() {
+        return new MemberTeamDTO(memberId, username, age, teamId, teamName);
+    }
 }
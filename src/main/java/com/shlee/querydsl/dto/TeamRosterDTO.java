@@ -0,0 +1,21 @@
+package com.shlee.querydsl.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+public class TeamRosterDTO {
+
+    private Long teamId;
+    private String teamName;
+    private List<MemberDTO> members = new ArrayList<>();
+
+    public TeamRosterDTO(Long teamId, String teamName) {
+        this.teamId = teamId;
+        this.teamName = teamName;
+    }
+}
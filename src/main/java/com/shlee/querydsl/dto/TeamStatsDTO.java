@@ -0,0 +1,26 @@
+package com.shlee.querydsl.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class TeamStatsDTO {
+
+    private Long teamId;
+    private String teamName;
+    private long memberCount;
+    // member 가 없으면 null
+    private Double ageAvg;
+    private Integer minAge;
+    private Integer maxAge;
+
+    public TeamStatsDTO(Long teamId, String teamName, long memberCount, long ageSum, Integer minAge, Integer maxAge) {
+        this.teamId = teamId;
+        this.teamName = teamName;
+        this.memberCount = memberCount;
+        this.ageAvg = memberCount == 0 ? null : (double) ageSum / memberCount;
+        this.minAge = minAge;
+        this.maxAge = maxAge;
+    }
+}
@@ -1,17 +1,28 @@
 package com.shlee.querydsl.entity;
 
 import lombok.*;
+import org.hibernate.Hibernate;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "member")
+// username 검색/정렬, age 범위/정렬, team 조인 + age 범위 (MemberSearchIndexAdvisor 로 확인)
+@Table(indexes = {
+        @Index(name = "idx_member_username", columnList = "username"),
+        @Index(name = "idx_member_age", columnList = "age"),
+        @Index(name = "idx_member_team_age", columnList = "team_id, age")
+})
 @Getter
 @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @ToString(of = {"id", "username", "age"})
 public class Member {
     @Id
-    @GeneratedValue
+    @GeneratedValue(generator = "pooled_lo")
     @Column(name = "member_id")
     private Long id;
 
@@ -41,9 +52,18 @@ public class Member {
         }
     }
 
+    // 연관관계 주인은 member.team 이므로 team.members 는 메모리 상태만 맞춘다 (컬렉션을 로딩하지 않음)
+    // - add: 로딩 전의 inverse 컬렉션이면 하이버네이트가 큐에 쌓았다가 로딩될 때 합친다
+    // - remove: bag 의 remove 는 컬렉션 전체를 로딩하므로 이미 로딩된 경우에만 뺀다
     public void changeTeam(Team team) {
+        Team previous = this.team;
         this.team = team;
-        team.getMembers().add(this);
+        if (previous != null && previous != team && Hibernate.isInitialized(previous.getMembers())) {
+            previous.getMembers().remove(this);
+        }
+        if (team != null) {
+            team.getMembers().add(this);
+        }
     }
 
 }
\ No newline at end of file
@@ -3,23 +3,34 @@ package com.shlee.querydsl.entity;
 import javax.persistence.Entity;
 
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.LazyCollection;
+import org.hibernate.annotations.LazyCollectionOption;
+
 import javax.persistence.*;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "team")
+@Table(indexes = @Index(name = "idx_team_name", columnList = "name"))
 @Getter @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @ToString(of = {"id", "name"})
 public class Team {
 
-    @Id @GeneratedValue
+    @Id @GeneratedValue(generator = "pooled_lo")
     @Column(name = "team_id")
     private Long id;
 
     private String name;
 
+    // EXTRA: size() / isEmpty() 는 count 쿼리로 (member 가 많은 team 도 컬렉션 전체를 올리지 않는다)
     @OneToMany(mappedBy = "team")
+    @LazyCollection(LazyCollectionOption.EXTRA)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "team-members")
     List<Member> members = new ArrayList<>();
 
     public Team(String name) {
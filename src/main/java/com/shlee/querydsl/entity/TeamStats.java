@@ -0,0 +1,48 @@
+package com.shlee.querydsl.entity;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+/**
+ * team 별 member 통계 (group by 대신 읽는 read model)
+ * member 변경 시 TeamStatsMaintainer 가 커밋 직전에 jdbc 로 증분 갱신한다 -> 2차 캐시에 올리지 않는다.
+ */
+@Entity
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@ToString
+public class TeamStats {
+
+    // team.team_id 와 같은 값
+    @Id
+    private Long teamId;
+
+    private long memberCount;
+
+    private long ageSum;
+
+    private Integer minAge;
+
+    private Integer maxAge;
+
+    // min/max 에 해당하는 member 가 빠졌거나 벌크 연산이 있었음 -> 읽을 때 member 에서 다시 계산
+    private boolean stale;
+
+    public TeamStats(Long teamId) {
+        this.teamId = teamId;
+        this.stale = true;
+    }
+
+    public void recalculated(long memberCount, long ageSum, Integer minAge, Integer maxAge) {
+        this.memberCount = memberCount;
+        this.ageSum = ageSum;
+        this.minAge = minAge;
+        this.maxAge = maxAge;
+        this.stale = false;
+    }
+}
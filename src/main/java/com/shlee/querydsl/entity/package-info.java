@@ -0,0 +1,18 @@
+/**
+ * Member, Team 이 같이 쓰는 id 생성기
+ * 기본 AUTO(hibernate_sequence 한 줄)는 insert 마다 왕복하고 동시 insert 가 한 row 에서 줄을 서며 jdbc batch 도 막는다.
+ * pooled-lo : 엔티티별 시퀀스(mysql 은 테이블로 에뮬레이션)에서 50개씩 한 번에 할당받아 메모리에서 나눠준다.
+ */
+@GenericGenerator(
+        name = "pooled_lo",
+        strategy = "org.hibernate.id.enhanced.SequenceStyleGenerator",
+        parameters = {
+                @Parameter(name = "prefer_sequence_per_entity", value = "true"),
+                @Parameter(name = "sequence_per_entity_suffix", value = "_seq"),
+                @Parameter(name = "increment_size", value = "50"),
+                @Parameter(name = "optimizer", value = "pooled-lo")
+        })
+package com.shlee.querydsl.entity;
+
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
@@ -0,0 +1,26 @@
+package com.shlee.querydsl.monitoring;
+
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+/**
+ * repository 메서드 단위 SQL scope
+ * @Repository 클래스(MemberJpaRepository 등)와 스프링 데이터 repository(MemberRepository)가 대상
+ */
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class RepositorySqlBudgetAspect {
+
+    private final SqlStatementCounter counter;
+
+    @Around("@within(org.springframework.stereotype.Repository) || this(org.springframework.data.repository.Repository)")
+    public Object measure(ProceedingJoinPoint joinPoint) throws Throwable {
+        try (SqlScope ignored = counter.open(joinPoint.getSignature().toShortString())) {
+            return joinPoint.proceed();
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.shlee.querydsl.monitoring;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * 응답 body 를 쓰기 직전에 요청 scope 의 SQL 예산을 검사한다.
+ * 아직 응답이 커밋되기 전이라 action: fail 의 SqlBudgetExceededException 이 500 응답이 된다.
+ */
+@ControllerAdvice
+@RequiredArgsConstructor
+public class RequestSqlBudgetAdvice implements ResponseBodyAdvice<Object> {
+
+    private final SqlStatementCounter counter;
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if (request instanceof ServletServerHttpRequest) {
+            SqlScope scope = RequestSqlBudgetInterceptor.scopeOf(((ServletServerHttpRequest) request).getServletRequest());
+            if (scope != null) {
+                counter.check(scope);
+            }
+        }
+        return body;
+    }
+}
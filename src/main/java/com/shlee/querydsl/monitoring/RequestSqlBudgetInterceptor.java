@@ -0,0 +1,60 @@
+package com.shlee.querydsl.monitoring;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * HTTP 요청 단위 SQL scope (scope 이름은 "GET /v2/members" 처럼 매핑 패턴 기준)
+ * - 예산 검사는 응답을 쓰기 직전(RequestSqlBudgetAdvice) -> action: fail 이면 요청이 500 으로 실패한다
+ * - afterCompletion 에서는 응답이 이미 나갔으므로 집계와 로그만
+ * 비동기 응답(StreamingResponseBody)은 요청 스레드를 떠날 때 scope 를 떼어 두고(작업 스레드는 SqlScopeTaskDecorator 가 건다)
+ * async dispatch 가 끝날 때 닫는다.
+ */
+@Component
+@RequiredArgsConstructor
+public class RequestSqlBudgetInterceptor implements AsyncHandlerInterceptor {
+
+    private static final String SCOPE_ATTRIBUTE = RequestSqlBudgetInterceptor.class.getName() + ".scope";
+
+    private final SqlStatementCounter counter;
+
+    static SqlScope scopeOf(HttpServletRequest request) {
+        return (SqlScope) request.getAttribute(SCOPE_ATTRIBUTE);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        SqlScope scope = scopeOf(request);
+        if (scope != null && request.getDispatcherType() == DispatcherType.ASYNC) {
+            counter.attach(scope);
+            return true;
+        }
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String path = pattern != null ? pattern.toString() : request.getRequestURI();
+        request.setAttribute(SCOPE_ATTRIBUTE, counter.open(request.getMethod() + " " + path));
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        SqlScope scope = scopeOf(request);
+        if (scope != null) {
+            counter.detach(scope);
+        }
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        SqlScope scope = scopeOf(request);
+        if (scope != null) {
+            request.removeAttribute(SCOPE_ATTRIBUTE);
+            counter.closeAfterResponse(scope);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.shlee.querydsl.monitoring;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 2차 캐시 리전별 hit/miss/put (hibernate.generate_statistics 가 켜져 있어야 값이 쌓인다)
+ */
+@Component
+public class SecondLevelCacheStatistics {
+
+    private final Statistics statistics;
+
+    public SecondLevelCacheStatistics(EntityManagerFactory emf) {
+        this.statistics = emf.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    public Map<String, Map<String, Long>> regions() {
+        Map<String, Map<String, Long>> regions = new TreeMap<>();
+        for (String regionName : statistics.getSecondLevelCacheRegionNames()) {
+            CacheRegionStatistics region = statistics.getCacheRegionStatistics(regionName);
+            if (region == null) {
+                continue;
+            }
+            Map<String, Long> counts = new LinkedHashMap<>();
+            counts.put("hit", region.getHitCount());
+            counts.put("miss", region.getMissCount());
+            counts.put("put", region.getPutCount());
+            counts.put("elements", region.getElementCountInMemory());
+            regions.put(regionName, counts);
+        }
+        return regions;
+    }
+}
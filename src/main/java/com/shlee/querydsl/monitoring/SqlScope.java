@@ -0,0 +1,78 @@
+package com.shlee.querydsl.monitoring;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * 하나의 HTTP 요청 / repository 메서드 동안 실행된 SQL 집계
+ * close() 할 때 예산(statement 수, 같은 모양 select 반복 수)을 검사한다.
+ * 비동기 응답이면 다른 스레드에서도 기록하므로 synchronized
+ */
+public class SqlScope implements AutoCloseable {
+
+    private static final Pattern COMMENT = Pattern.compile("/\\*.*?\\*/", Pattern.DOTALL);
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern IN_LIST = Pattern.compile("in \\(\\?(?:, ?\\?)*\\)", Pattern.CASE_INSENSITIVE);
+
+    private final SqlStatementCounter counter;
+    private final String name;
+    private int statementCount;
+    // 같은 모양 select 실행 횟수 -> N+1 감지
+    private final Map<String, Integer> selectShapes = new HashMap<>();
+    private boolean reported;
+
+    SqlScope(SqlStatementCounter counter, String name) {
+        this.counter = counter;
+        this.name = name;
+    }
+
+    synchronized void record(String sql) {
+        statementCount++;
+        String shape = shapeOf(sql);
+        // select ... for update 는 id 테이블 같은 잠금 조회라서 N+1 대상이 아니다
+        if (shape.regionMatches(true, 0, "select", 0, 6) && !shape.toLowerCase().endsWith("for update")) {
+            selectShapes.merge(shape, 1, Integer::sum);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public synchronized int getStatementCount() {
+        return statementCount;
+    }
+
+    // maxRepeated 번을 넘게 반복된 select 모양과 횟수
+    public synchronized Map<String, Integer> getRepeatedStatements(int maxRepeated) {
+        Map<String, Integer> repeated = new LinkedHashMap<>();
+        selectShapes.forEach((shape, count) -> {
+            if (count > maxRepeated) {
+                repeated.put(shape, count);
+            }
+        });
+        return repeated;
+    }
+
+    // 처음 한 번만 true -> 위반을 두 번 집계하지 않는다
+    synchronized boolean markReported() {
+        if (reported) {
+            return false;
+        }
+        reported = true;
+        return true;
+    }
+
+    @Override
+    public void close() {
+        counter.close(this);
+    }
+
+    static String shapeOf(String sql) {
+        String shape = COMMENT.matcher(sql).replaceAll(" ");
+        shape = WHITESPACE.matcher(shape).replaceAll(" ").trim();
+        return IN_LIST.matcher(shape).replaceAll("in (?)");
+    }
+}
@@ -0,0 +1,35 @@
+package com.shlee.querydsl.monitoring;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 작업을 넘긴 스레드의 SQL scope 를 작업 스레드에도 건다.
+ * 스프링 부트가 applicationTaskExecutor(mvc 비동기 응답 StreamingResponseBody 등)에 적용한다
+ * -> /members/export 처럼 작업 스레드에서 실행한 SQL 도 요청 scope 에 잡힌다.
+ */
+@Component
+@RequiredArgsConstructor
+public class SqlScopeTaskDecorator implements TaskDecorator {
+
+    private final SqlStatementCounter counter;
+
+    @Override
+    public Runnable decorate(Runnable task) {
+        List<SqlScope> scopes = counter.currentScopes();
+        if (scopes.isEmpty()) {
+            return task;
+        }
+        return () -> {
+            scopes.forEach(counter::attach);
+            try {
+                task.run();
+            } finally {
+                scopes.forEach(counter::detach);
+            }
+        };
+    }
+}
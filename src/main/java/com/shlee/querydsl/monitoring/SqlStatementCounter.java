@@ -0,0 +1,142 @@
+package com.shlee.querydsl.monitoring;
+
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * p6spy 리스너로 JDBC statement 를 세고 scope(HTTP 요청, repository 메서드)별 예산을 검사한다.
+ * 예산을 넘으면 sql-budget.action 에 따라 로그(log)를 남기거나 예외(fail)를 던지고, 위반 횟수는 항상 집계한다.
+ */
+@Slf4j
+@Component
+public class SqlStatementCounter extends SimpleJdbcEventListener {
+
+    public enum Action { LOG, FAIL }
+
+    private static final ThreadLocal<Deque<SqlScope>> SCOPES = ThreadLocal.withInitial(ArrayDeque::new);
+
+    private final int maxStatements;
+    private final int maxRepeated;
+    private final Action action;
+    private final ConcurrentMap<String, LongAdder> statements = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, LongAdder> violations = new ConcurrentHashMap<>();
+
+    public SqlStatementCounter(@Value("${sql-budget.max-statements:200}") int maxStatements,
+                               @Value("${sql-budget.max-repeated:5}") int maxRepeated,
+                               @Value("${sql-budget.action:log}") Action action) {
+        this.maxStatements = maxStatements;
+        this.maxRepeated = maxRepeated;
+        this.action = action;
+    }
+
+    public SqlScope open(String name) {
+        SqlScope scope = new SqlScope(this, name);
+        SCOPES.get().push(scope);
+        return scope;
+    }
+
+    // addBatch 는 onAfterAnyAddBatch 로 빠지므로 배치는 executeBatch 한 번(DB 왕복 한 번)으로 센다
+    @Override
+    public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+        Deque<SqlScope> scopes = SCOPES.get();
+        if (scopes.isEmpty()) {
+            return;
+        }
+        String sql = statementInformation.getSql();
+        // 바깥 scope(HTTP 요청)와 안쪽 scope(repository 메서드) 모두에 기록
+        for (SqlScope scope : scopes) {
+            scope.record(sql);
+        }
+    }
+
+    // 지금 스레드에 열려 있는 scope (바깥 -> 안쪽 순서)
+    List<SqlScope> currentScopes() {
+        List<SqlScope> scopes = new ArrayList<>(SCOPES.get());
+        if (scopes.isEmpty()) {
+            SCOPES.remove();
+        }
+        Collections.reverse(scopes);
+        return scopes;
+    }
+
+    // 다른 스레드에서 연 scope 를 이 스레드에도 건다 (닫지 않고 detach 로 뗀다)
+    void attach(SqlScope scope) {
+        SCOPES.get().push(scope);
+    }
+
+    void detach(SqlScope scope) {
+        Deque<SqlScope> scopes = SCOPES.get();
+        scopes.remove(scope);
+        if (scopes.isEmpty()) {
+            SCOPES.remove();
+        }
+    }
+
+    // 아직 닫지 않은 scope 의 예산 검사 (응답을 쓰기 전에 요청을 실패시킬 때)
+    public void check(SqlScope scope) {
+        report(scope, action == Action.FAIL);
+    }
+
+    void close(SqlScope scope) {
+        close(scope, action == Action.FAIL);
+    }
+
+    // 응답을 보낸 뒤에 닫는 scope 는 예외를 던져도 요청을 실패시키지 못한다 -> 집계와 로그만
+    void closeAfterResponse(SqlScope scope) {
+        close(scope, false);
+    }
+
+    private void close(SqlScope scope, boolean fail) {
+        detach(scope);
+        statements.computeIfAbsent(scope.getName(), k -> new LongAdder()).add(scope.getStatementCount());
+        report(scope, fail);
+    }
+
+    // 위반은 scope 마다 한 번만 집계한다 (check 후 close)
+    private void report(SqlScope scope, boolean fail) {
+        Map<String, Integer> repeated = scope.getRepeatedStatements(maxRepeated);
+        if (scope.getStatementCount() <= maxStatements && repeated.isEmpty() || !scope.markReported()) {
+            return;
+        }
+
+        violations.computeIfAbsent(scope.getName(), k -> new LongAdder()).increment();
+        String message = "SQL budget exceeded in " + scope.getName()
+                + ": statements=" + scope.getStatementCount() + " (max " + maxStatements + ")"
+                + (repeated.isEmpty() ? "" : ", repeated(N+1)=" + repeated + " (max " + maxRepeated + ")");
+        if (fail) {
+            throw new SqlBudgetExceededException(message);
+        }
+        log.warn(message);
+    }
+
+    // scope 이름별 누적 statement 수
+    public Map<String, Long> statementCounts() {
+        return snapshot(statements);
+    }
+
+    // scope 이름별 예산 초과 횟수
+    public Map<String, Long> violationCounts() {
+        return snapshot(violations);
+    }
+
+    private static Map<String, Long> snapshot(ConcurrentMap<String, LongAdder> counters) {
+        Map<String, Long> snapshot = new TreeMap<>();
+        counters.forEach((name, count) -> snapshot.put(name, count.sum()));
+        return snapshot;
+    }
+}
@@ -0,0 +1,359 @@
+package com.shlee.querydsl.repository;
+
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.FactoryExpressionBase;
+import com.querydsl.core.types.Operation;
+import com.querydsl.core.types.Ops;
+import com.querydsl.core.types.Path;
+import com.querydsl.core.types.Visitor;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Projections.bean / fields / constructor 와 같은 사용법, 행마다 리플렉션 대신 미리 만든 접근자를 쓴다.
+ * ex) FastProjections.fields(UserDTO.class, member.username.as("name"), member.age)
+ * - 생성 + 값 쓰기(setter / 필드 / 생성자)를 MethodHandle 하나로 합쳐 두고 행마다 invokeExact 한 번
+ *   (접근자마다 따로 부르면 호출 지점이 megamorphic 이 되어 인라인되지 않는다)
+ * MethodHandle 은 (DTO 클래스, 방식, 이름 또는 인자 타입) 별로 한 번만 만든다.
+ * Projections 와 달리 대상 property / 생성자가 없으면 쿼리를 만들 때 IllegalArgumentException
+ */
+public final class FastProjections {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final Map<Key, Object> PLANS = new ConcurrentHashMap<>();
+
+    private FastProjections() {
+    }
+
+    // setter 로 채운다 (null 은 건너뜀 -> primitive 는 기본값)
+    public static <T> FactoryExpressionBase<T> bean(Class<? extends T> type, Expression<?>... exprs) {
+        BeanPlan plan = plan(new Key(type, "bean", bindings(exprs)), () -> BeanPlan.setters(type, exprs));
+        return new BeanProjection<>(type, exprs, plan);
+    }
+
+    // getter, setter 없이 필드에 바로 넣는다
+    public static <T> FactoryExpressionBase<T> fields(Class<? extends T> type, Expression<?>... exprs) {
+        BeanPlan plan = plan(new Key(type, "fields", bindings(exprs)), () -> BeanPlan.fields(type, exprs));
+        return new BeanProjection<>(type, exprs, plan);
+    }
+
+    // 인자 타입이 맞는 public 생성자 (alias 는 무시)
+    public static <T> FactoryExpressionBase<T> constructor(Class<? extends T> type, Expression<?>... exprs) {
+        List<Class<?>> argTypes = types(exprs);
+        ConstructorPlan plan = plan(new Key(type, "constructor", argTypes), () -> ConstructorPlan.of(type, argTypes));
+        return new ConstructorProjection<>(type, exprs, plan);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <P> P plan(Key key, Supplier<P> factory) {
+        return (P) PLANS.computeIfAbsent(key, k -> factory.get());
+    }
+
+    // 이름이 같아도 타입이 다르면 다른 setter (오버로드)
+    private static List<Object> bindings(Expression<?>[] exprs) {
+        Object[] bindings = new Object[exprs.length * 2];
+        for (int i = 0; i < exprs.length; i++) {
+            bindings[i * 2] = name(exprs[i]);
+            bindings[i * 2 + 1] = exprs[i].getType();
+        }
+        return Arrays.asList(bindings);
+    }
+
+    // member.username -> "username", member.username.as("name") -> "name"
+    private static String name(Expression<?> expr) {
+        if (expr instanceof Operation && ((Operation<?>) expr).getOperator() == Ops.ALIAS) {
+            return ((Path<?>) ((Operation<?>) expr).getArg(1)).getMetadata().getName();
+        }
+        if (expr instanceof Path) {
+            return ((Path<?>) expr).getMetadata().getName();
+        }
+        throw new IllegalArgumentException("projection argument needs an alias: " + expr);
+    }
+
+    private static List<Class<?>> types(Expression<?>[] exprs) {
+        Class<?>[] types = new Class<?>[exprs.length];
+        for (int i = 0; i < exprs.length; i++) {
+            types[i] = exprs[i].getType();
+        }
+        return Arrays.asList(types);
+    }
+
+    private static Class<?> wrap(Class<?> type) {
+        return type.isPrimitive() ? MethodType.methodType(type).wrap().returnType() : type;
+    }
+
+    private static boolean assignable(Class<?> target, Class<?> value) {
+        return wrap(target).isAssignableFrom(wrap(value));
+    }
+
+    private static IllegalArgumentException cannotAccess(Class<?> type, String target, Throwable cause) {
+        return new IllegalArgumentException("cannot access " + type.getName() + "." + target, cause);
+    }
+
+    @lombok.Value
+    private static class Key {
+        Class<?> type;
+        String mode;
+        List<?> bindings;
+    }
+
+    private static class BeanProjection<T> extends FactoryExpressionBase<T> {
+
+        private final List<Expression<?>> args;
+        private final BeanPlan plan;
+
+        BeanProjection(Class<? extends T> type, Expression<?>[] exprs, BeanPlan plan) {
+            super(type);
+            this.args = Collections.unmodifiableList(Arrays.asList(exprs.clone()));
+            this.plan = plan;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T newInstance(Object... values) {
+            return (T) plan.create(values);
+        }
+
+        @Override
+        public List<Expression<?>> getArgs() {
+            return args;
+        }
+
+        @Override
+        public <R, C> R accept(Visitor<R, C> v, C context) {
+            return v.visit(this, context);
+        }
+    }
+
+    private static class ConstructorProjection<T> extends FactoryExpressionBase<T> {
+
+        private final List<Expression<?>> args;
+        private final ConstructorPlan plan;
+
+        ConstructorProjection(Class<? extends T> type, Expression<?>[] exprs, ConstructorPlan plan) {
+            super(type);
+            this.args = Collections.unmodifiableList(Arrays.asList(exprs.clone()));
+            this.plan = plan;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T newInstance(Object... values) {
+            return (T) plan.create(values);
+        }
+
+        @Override
+        public List<Expression<?>> getArgs() {
+            return args;
+        }
+
+        @Override
+        public <R, C> R accept(Visitor<R, C> v, C context) {
+            return v.visit(this, context);
+        }
+    }
+
+    private static class BeanPlan {
+
+        private static final MethodHandle IS_NULL;
+        private static final MethodHandle ELEMENT = MethodHandles.arrayElementGetter(Object[].class);
+
+        static {
+            try {
+                IS_NULL = LOOKUP.findStatic(Objects.class, "isNull", MethodType.methodType(boolean.class, Object.class));
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        // (Object[] values) -> Object : 생성 + null 이 아닌 값 쓰기를 하나로 합친 MethodHandle
+        private final MethodHandle create;
+
+        private BeanPlan(MethodHandle create) {
+            this.create = create;
+        }
+
+        static BeanPlan setters(Class<?> type, Expression<?>[] exprs) {
+            MethodHandle[] writers = new MethodHandle[exprs.length];
+            for (int i = 0; i < exprs.length; i++) {
+                writers[i] = setter(type, name(exprs[i]), exprs[i].getType());
+            }
+            return new BeanPlan(compose(type, writers));
+        }
+
+        static BeanPlan fields(Class<?> type, Expression<?>[] exprs) {
+            MethodHandle[] writers = new MethodHandle[exprs.length];
+            for (int i = 0; i < exprs.length; i++) {
+                writers[i] = field(type, name(exprs[i]), exprs[i].getType());
+            }
+            return new BeanPlan(compose(type, writers));
+        }
+
+        Object create(Object[] values) {
+            try {
+                return (Object) create.invokeExact(values);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        // bean = new T(); if (values[i] != null) writers[i](bean, values[i]) ...; return bean
+        private static MethodHandle compose(Class<?> type, MethodHandle[] writers) {
+            MethodHandle constructor;
+            try {
+                constructor = LOOKUP.findConstructor(type, MethodType.methodType(void.class))
+                        .asType(MethodType.methodType(Object.class));
+            } catch (ReflectiveOperationException e) {
+                throw cannotAccess(type, "<init>()", e);
+            }
+            // (Object bean, Object[] values) -> bean
+            MethodHandle body = MethodHandles.dropArguments(MethodHandles.identity(Object.class), 1, Object[].class);
+            for (int i = writers.length - 1; i >= 0; i--) {
+                MethodHandle value = MethodHandles.insertArguments(ELEMENT, 1, i);
+                MethodHandle write = MethodHandles.filterArguments(writers[i], 1, value);
+                MethodHandle skip = MethodHandles.dropArguments(
+                        MethodHandles.filterReturnValue(value, IS_NULL), 0, Object.class);
+                MethodHandle noop = MethodHandles.dropArguments(
+                        MethodHandles.constant(Object.class, null), 0, Object.class, Object[].class)
+                        .asType(MethodType.methodType(void.class, Object.class, Object[].class));
+                body = MethodHandles.foldArguments(body, MethodHandles.guardWithTest(skip, noop, write));
+            }
+            return MethodHandles.foldArguments(body, constructor);
+        }
+
+        // (Object bean, Object value) -> void
+        private static MethodHandle setter(Class<?> type, String property, Class<?> valueType) {
+            String name = "set" + Character.toUpperCase(property.charAt(0)) + property.substring(1);
+            Method setter = Arrays.stream(type.getMethods())
+                    .filter(m -> m.getName().equals(name) && m.getParameterCount() == 1
+                            && !Modifier.isStatic(m.getModifiers()))
+                    .filter(m -> assignable(m.getParameterTypes()[0], valueType))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException(
+                            "no setter " + type.getName() + "." + name + "(" + valueType.getName() + ")"));
+            try {
+                return LOOKUP.unreflect(setter)
+                        .asType(MethodType.methodType(void.class, Object.class, Object.class));
+            } catch (ReflectiveOperationException e) {
+                throw cannotAccess(type, name, e);
+            }
+        }
+
+        // (Object bean, Object value) -> void
+        private static MethodHandle field(Class<?> type, String property, Class<?> valueType) {
+            Field field = findField(type, property);
+            if (field == null || Modifier.isStatic(field.getModifiers())) {
+                throw new IllegalArgumentException("no field " + type.getName() + "." + property);
+            }
+            if (!assignable(field.getType(), valueType)) {
+                throw new IllegalArgumentException("field " + type.getName() + "." + property + " is "
+                        + field.getType().getName() + ", not " + valueType.getName());
+            }
+            try {
+                field.setAccessible(true);
+                return LOOKUP.unreflectSetter(field)
+                        .asType(MethodType.methodType(void.class, Object.class, Object.class));
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                throw cannotAccess(type, property, e);
+            }
+        }
+
+        private static Field findField(Class<?> type, String name) {
+            for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    if (field.getName().equals(name)) {
+                        return field;
+                    }
+                }
+            }
+            return null;
+        }
+    }
+
+    private static class ConstructorPlan {
+
+        // (Object[]) -> Object
+        private final MethodHandle constructor;
+        // primitive 인자에 null 이 오면 넣을 기본값 (primitive 가 아니면 null)
+        private final Object[] defaults;
+        private final boolean hasPrimitive;
+
+        private ConstructorPlan(MethodHandle constructor, Object[] defaults, boolean hasPrimitive) {
+            this.constructor = constructor;
+            this.defaults = defaults;
+            this.hasPrimitive = hasPrimitive;
+        }
+
+        static ConstructorPlan of(Class<?> type, List<Class<?>> argTypes) {
+            Constructor<?> constructor = Arrays.stream(type.getConstructors())
+                    .filter(c -> c.getParameterCount() == argTypes.size())
+                    .filter(c -> {
+                        Class<?>[] parameterTypes = c.getParameterTypes();
+                        for (int i = 0; i < parameterTypes.length; i++) {
+                            if (!assignable(parameterTypes[i], argTypes.get(i))) {
+                                return false;
+                            }
+                        }
+                        return true;
+                    })
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException(
+                            "no constructor " + type.getName() + argTypes));
+
+            Class<?>[] parameterTypes = constructor.getParameterTypes();
+            Object[] defaults = new Object[parameterTypes.length];
+            boolean hasPrimitive = false;
+            for (int i = 0; i < parameterTypes.length; i++) {
+                if (parameterTypes[i].isPrimitive()) {
+                    defaults[i] = Array.get(Array.newInstance(parameterTypes[i], 1), 0);
+                    hasPrimitive = true;
+                }
+            }
+            try {
+                MethodHandle handle = LOOKUP.unreflectConstructor(constructor)
+                        .asSpreader(Object[].class, parameterTypes.length)
+                        .asType(MethodType.methodType(Object.class, Object[].class));
+                return new ConstructorPlan(handle, defaults, hasPrimitive);
+            } catch (ReflectiveOperationException e) {
+                throw cannotAccess(type, "<init>" + argTypes, e);
+            }
+        }
+
+        Object create(Object[] values) {
+            Object[] args = values;
+            if (hasPrimitive) {
+                for (int i = 0; i < defaults.length; i++) {
+                    if (defaults[i] != null && args[i] == null) {
+                        if (args == values) {
+                            args = values.clone();
+                        }
+                        args[i] = defaults[i];
+                    }
+                }
+            }
+            try {
+                return (Object) constructor.invokeExact(args);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
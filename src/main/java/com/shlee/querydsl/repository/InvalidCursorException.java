@@ -0,0 +1,13 @@
+package com.shlee.querydsl.repository;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+// 디코딩할 수 없는 cursor -> 400 (UnsupportedSortException 과 같은 이유로 IllegalArgumentException 이 아님)
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidCursorException extends RuntimeException {
+
+    public InvalidCursorException(String cursor, Throwable cause) {
+        super("invalid cursor '" + cursor + "'", cause);
+    }
+}
@@ -0,0 +1,76 @@
+package com.shlee.querydsl.repository;
+
+import com.shlee.querydsl.entity.Member;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.annotation.RequestScope;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 요청 하나 동안의 member id 조회를 모아서 findAllByIdsOrdered 한 번으로 읽는다. (DataLoader 방식)
+ * - load / loadMany 는 future 만 돌려주고 id 를 쌓아 둔다
+ * - dispatch() 가 쌓인 id 를 한 번에 조회해서 future 를 채운다 -> 한 단계(tick)의 load 를 다 부른 뒤 한 번 호출
+ *   ex) for (Order o : orders) futures.add(loader.load(o.getMemberId()));  loader.dispatch();
+ * - findById 는 load + dispatch -> 반복문에서 부르면 id 마다 조회 한 번이다 (묶으려면 load 후 dispatch)
+ * - 한 번 읽은 id 는 요청이 끝날 때까지 다시 조회하지 않는다
+ * 요청 스레드 전용이다 (@RequestScope 빈은 다른 스레드에서 꺼낼 수 없다). 동기화하지 않는다.
+ */
+@Component
+@RequestScope
+public class MemberBatchLoader {
+
+    private final MemberJpaRepository memberJpaRepository;
+
+    private final Map<Long, CompletableFuture<Optional<Member>>> futures = new HashMap<>();
+    private Map<Long, CompletableFuture<Optional<Member>>> pending = new LinkedHashMap<>();
+
+    public MemberBatchLoader(MemberJpaRepository memberJpaRepository) {
+        this.memberJpaRepository = memberJpaRepository;
+    }
+
+    public CompletableFuture<Optional<Member>> load(Long id) {
+        return futures.computeIfAbsent(id, key -> {
+            CompletableFuture<Optional<Member>> future = new CompletableFuture<>();
+            pending.put(key, future);
+            return future;
+        });
+    }
+
+    public List<CompletableFuture<Optional<Member>>> loadMany(Collection<Long> ids) {
+        return ids.stream().map(this::load).collect(Collectors.toList());
+    }
+
+    // 지금까지 load 된 id 를 조회한다 -> 아직 조회 안 된 id 가 있으면 findAllByIdsOrdered 한 번
+    public void dispatch() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        Map<Long, CompletableFuture<Optional<Member>>> batch = pending;
+        pending = new LinkedHashMap<>();
+        try {
+            Map<Long, Member> byId = memberJpaRepository.findAllByIdsOrdered(batch.keySet()).stream()
+                    .collect(Collectors.toMap(Member::getId, Function.identity()));
+            batch.forEach((id, future) -> future.complete(Optional.ofNullable(byId.get(id))));
+        } catch (RuntimeException | Error e) {
+            // 실패는 캐시하지 않는다 -> 다음 load 에서 다시 조회
+            batch.keySet().forEach(futures::remove);
+            batch.values().forEach(future -> future.completeExceptionally(e));
+            throw e;
+        }
+    }
+
+    // 함께 load 되어 있던 id 도 같이 조회된다
+    public Optional<Member> findById(Long id) {
+        CompletableFuture<Optional<Member>> future = load(id);
+        dispatch();
+        return future.join();
+    }
+}
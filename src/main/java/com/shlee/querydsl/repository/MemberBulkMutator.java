@@ -0,0 +1,190 @@
+package com.shlee.querydsl.repository;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.shlee.querydsl.dto.BulkMutationResultDTO;
+import com.shlee.querydsl.entity.Member;
+import com.shlee.querydsl.monitoring.SqlScope;
+import com.shlee.querydsl.monitoring.SqlStatementCounter;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.LockModeType;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static com.shlee.querydsl.entity.QMember.member;
+
+/**
+ * update(member).set(...).where(...).execute() 대신 member.id 를 chunkSize 폭의 고정 범위로 나눠서 바꾼다.
+ * - 범위는 조건에 맞는 member.id 의 min ~ max, 범위마다 id >= lo and id < lo + chunkSize 안에서만 조건을 건다
+ *   (where 조건 + id > 마지막 id + limit 으로 넘기면 조건이 드문 구간에서 chunk 하나가 id 범위를 끝없이 훑고 잠근다)
+ * - chunk 마다 짧은 트랜잭션(REQUIRES_NEW) -> 행 잠금은 chunk 범위만, 커밋까지만
+ * - 바꿀 member 가 없는 범위도 chunk 로 보고한다 (진행률)
+ * - chunk 사이에 pause 만큼 쉬어서 복제 지연 / 다른 트랜잭션에 여유를 준다
+ * - 엔티티로 바꾸므로 2차 캐시와 영속성 컨텍스트에서 바뀐 member 만 갱신/제거된다 (em.clear, region 전체 무효화 없음)
+ * SQL 예산은 메서드 전체가 아니라 chunk 하나 단위로 검사한다 (@Repository 가 아닌 이유).
+ */
+@Slf4j
+@Component
+public class MemberBulkMutator {
+
+    private final EntityManager em;
+    private final EntityManagerFactory emf;
+    private final JPAQueryFactory queryFactory;
+    private final TransactionTemplate chunkTx;
+    private final SqlStatementCounter sqlStatementCounter;
+    private final int defaultChunkSize;
+    private final Duration defaultPause;
+
+    public MemberBulkMutator(EntityManager em, EntityManagerFactory emf, PlatformTransactionManager transactionManager,
+                             SqlStatementCounter sqlStatementCounter,
+                             @Value("${bulk.member.chunk-size:500}") int defaultChunkSize,
+                             @Value("${bulk.member.pause:0ms}") Duration defaultPause) {
+        this.em = em;
+        this.emf = emf;
+        // 바꿀 엔티티를 읽으므로 공용 JPAQueryFactory(ReadOnlyQueryMode hint) 대신 따로 만든다
+        this.queryFactory = new JPAQueryFactory(em);
+        this.sqlStatementCounter = sqlStatementCounter;
+        this.defaultChunkSize = defaultChunkSize;
+        this.defaultPause = defaultPause;
+
+        this.chunkTx = new TransactionTemplate(transactionManager);
+        chunkTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    // condition 에 맞는 member 에 mutation 적용 ex) update(member.age.lt(28), m -> m.setUsername("비회원"))
+    public BulkMutationResultDTO update(Predicate condition, Consumer<Member> mutation) {
+        return update(condition, mutation, defaultChunkSize, defaultPause, chunk -> { });
+    }
+
+    public BulkMutationResultDTO update(Predicate condition, Consumer<Member> mutation,
+                                        int chunkSize, Duration pause, Consumer<BulkMutationResultDTO.Chunk> progress) {
+        return mutate("update", condition, mutation, chunkSize, pause, progress);
+    }
+
+    public BulkMutationResultDTO delete(Predicate condition) {
+        return delete(condition, defaultChunkSize, defaultPause, chunk -> { });
+    }
+
+    public BulkMutationResultDTO delete(Predicate condition,
+                                        int chunkSize, Duration pause, Consumer<BulkMutationResultDTO.Chunk> progress) {
+        return mutate("delete", condition, em::remove, chunkSize, pause, progress);
+    }
+
+    private BulkMutationResultDTO mutate(String operation, Predicate condition, Consumer<Member> mutation,
+                                         int chunkSize, Duration pause, Consumer<BulkMutationResultDTO.Chunk> progress) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunkSize must be positive: " + chunkSize);
+        }
+        // 바깥 쓰기 트랜잭션이 잡은 행을 chunk 트랜잭션이 기다리게 된다 (자기 자신과 데드락)
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            throw new IllegalStateException("bulk " + operation + " runs its own transactions per chunk;"
+                    + " call it outside of a write transaction");
+        }
+        // 바깥(읽기 전용 트랜잭션, open-in-view)의 영속성 컨텍스트 -> 바뀐 member 만 detach
+        EntityManager outer = EntityManagerFactoryUtils.getTransactionalEntityManager(emf);
+
+        long started = System.nanoTime();
+        BulkMutationResultDTO result = new BulkMutationResultDTO();
+        Tuple bounds = queryFactory
+                .select(member.id.min(), member.id.max())
+                .from(member)
+                .where(condition)
+                .fetchOne();
+        Long minId = bounds == null ? null : bounds.get(member.id.min());
+        Long maxId = bounds == null ? null : bounds.get(member.id.max());
+        if (minId == null) {
+            result.setElapsedMillis(Duration.ofNanos(System.nanoTime() - started).toMillis());
+            return result;
+        }
+
+        int index = 0;
+        for (long fromId = minId; fromId <= maxId; fromId += chunkSize, index++) {
+            long from = fromId;
+            long chunkStarted = System.nanoTime();
+            List<Long> ids;
+            try (SqlScope ignored = sqlStatementCounter.open("MemberBulkMutator." + operation + " chunk")) {
+                ids = chunkTx.execute(status -> mutateChunk(condition, mutation, from, from + chunkSize));
+            }
+            detach(outer, ids);
+
+            BulkMutationResultDTO.Chunk chunk = new BulkMutationResultDTO.Chunk(index, from, from + chunkSize - 1,
+                    ids.size(), Duration.ofNanos(System.nanoTime() - chunkStarted).toMillis());
+            result.add(chunk);
+            progress.accept(chunk);
+            log.debug("bulk {} chunk {}: member.id {}..{} ({} rows, {}ms)", operation, index,
+                    chunk.getFromId(), chunk.getToId(), chunk.getAffected(), chunk.getElapsedMillis());
+
+            // 바꾼 행이 없으면 쉴 필요 없다
+            if (!ids.isEmpty() && fromId + chunkSize <= maxId && !pause(pause)) {
+                result.setCompleted(false);
+                break;
+            }
+        }
+        result.setElapsedMillis(Duration.ofNanos(System.nanoTime() - started).toMillis());
+        return result;
+    }
+
+    // [fromId, toId) 범위에서 조건에 맞는 member 를 잠그고(select ... for update) 바꾼 뒤 id 를 돌려준다
+    // 잠금은 primary key 범위 안에서만 -> 조건에 맞는 행이 없어도 범위 밖을 훑지 않는다
+    private List<Long> mutateChunk(Predicate condition, Consumer<Member> mutation, long fromId, long toId) {
+        List<Member> members = queryFactory
+                .selectFrom(member)
+                .where(member.id.goe(fromId), member.id.lt(toId), condition)
+                .orderBy(member.id.asc())
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .fetch();
+
+        List<Long> ids = new ArrayList<>(members.size());
+        for (Member m : members) {
+            ids.add(m.getId());
+            mutation.accept(m);
+        }
+        // jdbc batch_size 단위로 update/delete 를 보내고, chunk 의 엔티티만 영속성 컨텍스트에서 뺀다
+        em.flush();
+        members.forEach(em::detach);
+        return ids;
+    }
+
+    private void detach(EntityManager outer, List<Long> ids) {
+        if (outer == null || !outer.isOpen()) {
+            return;
+        }
+        SessionImplementor session = outer.unwrap(SessionImplementor.class);
+        EntityPersister persister = session.getFactory().getMetamodel().entityPersister(Member.class);
+        for (Long id : ids) {
+            Object managed = session.getPersistenceContext().getEntity(session.generateEntityKey(id, persister));
+            if (managed != null) {
+                outer.detach(managed);
+            }
+        }
+    }
+
+    private static boolean pause(Duration pause) {
+        if (pause.isZero() || pause.isNegative()) {
+            return true;
+        }
+        try {
+            Thread.sleep(pause.toMillis());
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.shlee.querydsl.repository;
+
+import com.shlee.querydsl.entity.Member;
+import com.shlee.querydsl.entity.Team;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.HibernateException;
+import org.hibernate.event.spi.*;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * 하이버네이트 이벤트와 실행되는 SQL 을 보고 MemberDataChangedEvent 를 발행한다.
+ * - persist / merge / update / delete : 엔티티 이벤트
+ * - 엔티티 이벤트 밖에서 실행된 member, team 테이블 DML : 벌크 연산
+ */
+@Component
+@RequiredArgsConstructor
+public class MemberChangeTracker implements StatementInspector,
+        PersistEventListener, MergeEventListener,
+        PreInsertEventListener, PostInsertEventListener,
+        PreUpdateEventListener, PostUpdateEventListener,
+        PreDeleteEventListener, PostDeleteEventListener {
+
+    // use_sql_comments 로 붙는 /* ... */ 주석을 건너뛰고 DML 대상 테이블을 본다
+    private static final Pattern MEMBER_DML = Pattern.compile(
+            "^\\s*(?:/\\*.*?\\*/\\s*)*(?:update|insert\\s+into|delete\\s+from|delete)\\s+(?:member|team)\\b",
+            Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    // 엔티티 insert/update/delete 가 SQL 을 만드는 중인지 (그 SQL 은 벌크가 아님)
+    // 액션이 실패해 post 이벤트가 안 오면 트랜잭션이 끝날 때 풀린다 -> 풀의 스레드에 TRUE 가 남지 않는다
+    private static final ThreadLocal<Boolean> IN_ENTITY_ACTION = ThreadLocal.withInitial(() -> Boolean.FALSE);
+
+    private final ApplicationEventPublisher publisher;
+
+    @Override
+    public String inspect(String sql) {
+        if (!IN_ENTITY_ACTION.get() && MEMBER_DML.matcher(sql).lookingAt()) {
+            publisher.publishEvent(MemberDataChangedEvent.bulk());
+        }
+        return sql;
+    }
+
+    @Override
+    public void onPersist(PersistEvent event) throws HibernateException {
+        publishIfTracked(event.getObject());
+    }
+
+    @Override
+    public void onPersist(PersistEvent event, Map createdAlready) throws HibernateException {
+        publishIfTracked(event.getObject());
+    }
+
+    @Override
+    public void onMerge(MergeEvent event) throws HibernateException {
+        publishIfTracked(event.getOriginal());
+    }
+
+    @Override
+    public void onMerge(MergeEvent event, Map copiedAlready) throws HibernateException {
+        publishIfTracked(event.getOriginal());
+    }
+
+    @Override
+    public boolean onPreInsert(PreInsertEvent event) {
+        enterEntityAction();
+        return false;
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        IN_ENTITY_ACTION.set(Boolean.FALSE);
+    }
+
+    @Override
+    public boolean onPreUpdate(PreUpdateEvent event) {
+        enterEntityAction();
+        return false;
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        IN_ENTITY_ACTION.set(Boolean.FALSE);
+        publishIfTracked(event.getEntity());
+    }
+
+    @Override
+    public boolean onPreDelete(PreDeleteEvent event) {
+        enterEntityAction();
+        return false;
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        IN_ENTITY_ACTION.set(Boolean.FALSE);
+        publishIfTracked(event.getEntity());
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return false;
+    }
+
+    private void enterEntityAction() {
+        IN_ENTITY_ACTION.set(Boolean.TRUE);
+        if (TransactionSynchronizationManager.isSynchronizationActive()
+                && !TransactionSynchronizationManager.hasResource(this)) {
+            TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(MemberChangeTracker.this);
+                    IN_ENTITY_ACTION.remove();
+                }
+            });
+        }
+    }
+
+    private void publishIfTracked(Object entity) {
+        if (entity instanceof Member || entity instanceof Team) {
+            publisher.publishEvent(MemberDataChangedEvent.entity(entity.getClass()));
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.shlee.querydsl.repository;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.shlee.querydsl.dto.MemberSearchCondition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+import static org.springframework.util.StringUtils.hasText;
+
+/**
+ * 페이징 검색의 total(count 쿼리 결과) 캐시
+ * 검색 조건별로 보관하고 Member/Team 이 바뀌면 전부 비운다.
+ */
+@Component
+public class MemberCountCache {
+
+    private final Cache<MemberSearchCondition, Long> cache;
+    private final boolean enabled;
+
+    public MemberCountCache(@Value("${search.count-cache.maximum-size:10000}") long maximumSize,
+                            @Value("${search.count-cache.expire-after-write:60s}") Duration expireAfterWrite) {
+        // maximum-size: 0 이면 캐시를 쓰지 않는다 (벤치마크 등)
+        this.enabled = maximumSize > 0;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+    }
+
+    public long get(MemberSearchCondition condition, LongSupplier counter) {
+        // 이 트랜잭션에서 이미 member를 바꿨다면 커밋 전 count 를 다른 요청과 공유하지 않는다
+        if (!enabled || TransactionSynchronizationManager.hasResource(this)) {
+            return counter.getAsLong();
+        }
+        return cache.get(normalize(condition), key -> counter.getAsLong());
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    // hit/miss/eviction 횟수
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    @EventListener
+    public void onMemberDataChanged(MemberDataChangedEvent event) {
+        invalidateAll();
+        // 커밋 전에 다른 트랜잭션이 예전 count 를 다시 채울 수 있어서 트랜잭션이 끝날 때 한 번 더 비운다
+        if (TransactionSynchronizationManager.isSynchronizationActive()
+                && !TransactionSynchronizationManager.hasResource(this)) {
+            TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(MemberCountCache.this);
+                    invalidateAll();
+                }
+            });
+        }
+    }
+
+    // 빈 문자열/공백은 조건 없음과 같은 쿼리가 되므로 같은 key 로 만든다 (MemberSearchQuery.shapeOf 와 같은 hasText)
+    static MemberSearchCondition normalize(MemberSearchCondition condition) {
+        MemberSearchCondition key = new MemberSearchCondition();
+        key.setUsername(textOrNull(condition.getUsername()));
+        key.setTeamName(textOrNull(condition.getTeamName()));
+        key.setAgeGoe(condition.getAgeGoe());
+        key.setAgeLoe(condition.getAgeLoe());
+        return key;
+    }
+
+    private static String textOrNull(String value) {
+        return hasText(value) ? value : null;
+    }
+}
@@ -0,0 +1,45 @@
+package com.shlee.querydsl.repository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * keyset 페이징용 continuation 토큰
+ * 클라이언트에게는 의미 없는 문자열로 보이도록 마지막 member.id 를 base64로 감싼다.
+ */
+final class MemberCursor {
+
+    private static final String VERSION = "v1:";
+
+    private MemberCursor() {
+    }
+
+    static String encode(Long lastMemberId) {
+        String raw = VERSION + lastMemberId;
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return 마지막으로 본 member.id, 첫 페이지(토큰 없음)면 null
+     */
+    static Long decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        String raw;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException(cursor, e);
+        }
+        if (!raw.startsWith(VERSION)) {
+            throw new InvalidCursorException(cursor, null);
+        }
+        try {
+            return Long.valueOf(raw.substring(VERSION.length()));
+        } catch (NumberFormatException e) {
+            throw new InvalidCursorException(cursor, e);
+        }
+    }
+}
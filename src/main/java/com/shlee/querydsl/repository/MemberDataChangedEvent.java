@@ -0,0 +1,31 @@
+package com.shlee.querydsl.repository;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Member/Team 데이터가 바뀌었음을 알리는 이벤트
+ * 엔티티 저장/수정/삭제와 querydsl 벌크 update/delete 모두 발행된다.
+ */
+@Getter
+@ToString
+public class MemberDataChangedEvent {
+
+    // 변경된 엔티티 타입 (Member 또는 Team), 벌크 연산이면 null
+    private final Class<?> entityType;
+    // update(member).set(...).execute() 처럼 영속성 컨텍스트를 거치지 않은 변경
+    private final boolean bulk;
+
+    private MemberDataChangedEvent(Class<?> entityType, boolean bulk) {
+        this.entityType = entityType;
+        this.bulk = bulk;
+    }
+
+    public static MemberDataChangedEvent entity(Class<?> entityType) {
+        return new MemberDataChangedEvent(entityType, false);
+    }
+
+    public static MemberDataChangedEvent bulk() {
+        return new MemberDataChangedEvent(null, true);
+    }
+}
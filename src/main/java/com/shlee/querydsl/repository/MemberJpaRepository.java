@@ -3,48 +3,106 @@ package com.shlee.querydsl.repository;
 
 import com.querydsl.core.BooleanBuilder;
 import com.querydsl.core.types.Predicate;
-import com.querydsl.core.types.dsl.BooleanExpression;
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.shlee.querydsl.config.ReadOnlyQueries;
 import com.shlee.querydsl.dto.MemberSearchCondition;
 import com.shlee.querydsl.dto.MemberTeamDTO;
 import com.shlee.querydsl.dto.QMemberTeamDTO;
 import com.shlee.querydsl.entity.Member;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
 import javax.persistence.EntityManager;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.stream.Collectors;
 import static com.shlee.querydsl.entity.QMember.member;
 import static com.shlee.querydsl.entity.QTeam.team;
 import static org.springframework.util.StringUtils.hasText;
 
+// 조회는 읽기 전용 트랜잭션, 저장 메서드만 쓰기 트랜잭션
 @Repository
+@Transactional(readOnly = true)
 public class MemberJpaRepository {
 
     private final EntityManager em;
     private final JPAQueryFactory queryFactory;
+    private final int batchSize;
+    private final int maxInSize;
 
-
-    public MemberJpaRepository(EntityManager em) {
+    public MemberJpaRepository(EntityManager em, JPAQueryFactory queryFactory,
+                               @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:100}") int batchSize,
+                               @Value("${lookup.member.max-in-size:512}") int maxInSize) {
         this.em = em;
-        this.queryFactory = new JPAQueryFactory(em);
+        this.queryFactory = queryFactory;
+        this.batchSize = batchSize;
+        this.maxInSize = Math.max(1, maxInSize);
     }
 
+    @Transactional
     public void save(Member member) {
         em.persist(member);
     }
 
+    // jdbc batch 크기만큼 persist 후 flush + clear -> insert 가 묶여서 나가고 영속성 컨텍스트도 커지지 않음
+    // 주의: clear 는 영속성 컨텍스트 전체를 비운다 -> 감싸는 트랜잭션에서 호출하면 그 트랜잭션이 읽어 둔 엔티티도 전부 준영속
+    //       (이후 변경은 flush 되지 않고 지연 로딩도 안 됨) -> 필요하면 호출 뒤 다시 조회한다
+    @Transactional
+    public void saveAll(Collection<Member> members) {
+        int count = 0;
+        for (Member member : members) {
+            em.persist(member);
+            if (++count % batchSize == 0) {
+                em.flush();
+                em.clear();
+            }
+        }
+        em.flush();
+        em.clear();
+    }
+
     public Optional<Member> findById(Long id) {
         Member findMember = em.find(Member.class, id);
         return Optional.ofNullable(findMember);
     }
+    // id 마다 findById 를 부르는 대신 IN 쿼리로, 결과는 ids 순서대로 (없는 id 는 빠지고 중복 id 는 중복)
+    // multiLoad: 영속성 컨텍스트 -> 2차 캐시에 없는 id 만 max-in-size 개씩 IN 쿼리
+    public List<Member> findAllByIdsOrdered(Collection<Long> ids) {
+        List<Long> distinct = ids.stream()
+                .filter(Objects::nonNull)
+                .distinct()
+                .collect(Collectors.toList());
+        Map<Long, Member> byId = new HashMap<>();
+        Session session = em.unwrap(Session.class);
+        // cache mode 를 주지 않으면 multiLoad 는 2차 캐시를 보지 않는다
+        session.byMultipleIds(Member.class)
+                .with(session.getCacheMode())
+                .withBatchSize(maxInSize)
+                .enableSessionCheck(true)
+                .multiLoad(distinct)
+                .stream()
+                .filter(Objects::nonNull)
+                .forEach(m -> byId.put(m.getId(), m));
+        return ids.stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
     // 순수 jpa
     public List<Member> findAll() {
         return em.createQuery("select m from Member m", Member.class)
                 .getResultList();
     }
     // query dsl 변경
+    @ReadOnlyQueries
     public List<Member> findAll_Querydsl() {
         return queryFactory
                 .selectFrom(member).fetch();
@@ -56,6 +114,7 @@ public class MemberJpaRepository {
                 .getResultList();
     }
     // querydsl 변경
+    @ReadOnlyQueries
     public List<Member> findByUsername_Querydsl(String username) {
         return queryFactory
                 .selectFrom(member)
@@ -93,39 +152,9 @@ public class MemberJpaRepository {
     }
     
     public List<MemberTeamDTO> search(MemberSearchCondition condition){
-        return queryFactory
-                .select(new QMemberTeamDTO(
-                        member.id.as("memberId"),
-                        member.username,
-                        member.age,
-                        team.id.as("teamId"),
-                        team.name.as("teamName")))
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(
-                        usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())                        
-                )
+        return MemberSearchQuery.of(queryFactory, condition)
+                .selectMemberTeam()
                 .fetch();
     }
 
-    
-    private BooleanExpression usernameEq(String username) {
-        return hasText(username) ? member.username.eq(username) : null;
-    }
-
-    private BooleanExpression teamNameEq(String teamName) {
-        return hasText(teamName) ? team.name.eq(teamName) : null;
-    }
-
-    private BooleanExpression ageGoe(Integer ageGoe) {
-        return ageGoe != null ? member.age.goe(ageGoe) : null;
-    }
-    
-    private BooleanExpression ageLoe(Integer ageLoe) {
-        return ageLoe != null ? member.age.loe(ageLoe) : null;
-    }
-
 }
\ No newline at end of file
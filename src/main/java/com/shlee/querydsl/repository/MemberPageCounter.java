@@ -0,0 +1,167 @@
+package com.shlee.querydsl.repository;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.shlee.querydsl.dto.MemberSearchCondition;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.OptionalLong;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 페이징 검색의 count 를 content 조회와 동시에 다른 커넥션에서 실행한다.
+ * 전용 스레드 풀(pool-size)만큼만 커넥션을 잡으므로 count 가 느려도 커넥션 풀 전체를 쓰지 못한다.
+ */
+@Slf4j
+@Component
+public class MemberPageCounter {
+
+    private final JPAQueryFactory queryFactory;
+    private final MemberCountCache countCache;
+    private final TransactionTemplate readOnlyTx;
+    private final ThreadPoolTaskExecutor executor;
+    private final int timeoutMillis;
+
+    public MemberPageCounter(JPAQueryFactory queryFactory, MemberCountCache countCache, PlatformTransactionManager transactionManager,
+                             @Value("${search.concurrent-count.pool-size:4}") int poolSize,
+                             @Value("${search.concurrent-count.queue-capacity:100}") int queueCapacity,
+                             @Value("${search.concurrent-count.timeout:3s}") Duration timeout) {
+        this.queryFactory = queryFactory;
+        this.countCache = countCache;
+        this.timeoutMillis = (int) timeout.toMillis();
+
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        readOnlyTx.setReadOnly(true);
+        readOnlyTx.setTimeout((int) Math.max(1, timeout.getSeconds()));
+
+        // 큐가 차면 TaskRejectedException -> 호출 스레드에서 바로 count
+        this.executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("search-count-");
+        executor.initialize();
+    }
+
+    public Future<Long> start(MemberSearchCondition condition) {
+        // 쓰기 트랜잭션 안이면 다른 커넥션에서는 커밋 전 변경이 보이지 않는다
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return countedInline(condition);
+        }
+        QueuedCount queued = new QueuedCount(() -> readOnlyTx.execute(status -> countInline(condition)));
+        try {
+            executor.execute(queued);
+            return queued;
+        } catch (TaskRejectedException e) {
+            return countedInline(condition);
+        }
+    }
+
+    // 실패(query timeout 등)도 future 에 담아서 await 에서 함께 처리한다
+    private CompletableFuture<Long> countedInline(MemberSearchCondition condition) {
+        CompletableFuture<Long> future = new CompletableFuture<>();
+        try {
+            future.complete(countInline(condition));
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    // 시간 안에 count 를 못 받으면 empty (total 을 모름) -> 페이지 요청 자체는 실패시키지 않는다
+    public OptionalLong await(Future<Long> total, MemberSearchCondition condition) {
+        try {
+            return OptionalLong.of(total.get(timeoutMillis, TimeUnit.MILLISECONDS));
+        } catch (TimeoutException e) {
+            // 큐에서 기다리기만 한 count -> 풀에서는 실행하지 않고 호출 스레드에서 바로 센다
+            if (total instanceof QueuedCount && ((QueuedCount) total).claim()) {
+                total.cancel(false);
+                return countInlineUnlessTimedOut(condition);
+            }
+            // 실행 중인 count 는 query timeout 으로 DB 에서 끊긴다 -> 같은 count 를 다시 실행하지 않는다
+            log.warn("count query for {} timed out after {}ms", condition, timeoutMillis);
+            return OptionalLong.empty();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            total.cancel(false);
+            throw new QueryTimeoutException("interrupted while waiting for count query", e);
+        } catch (ExecutionException e) {
+            if (isQueryTimeout(e.getCause())) {
+                log.warn("count query for {} timed out after {}ms", condition, timeoutMillis);
+                return OptionalLong.empty();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    // FutureTask.cancel 은 실행 중에도 true 라서 큐에 있었는지 구분하려면 시작 여부를 따로 둔다
+    private static final class QueuedCount extends FutureTask<Long> {
+
+        private final AtomicBoolean started = new AtomicBoolean();
+
+        QueuedCount(Callable<Long> count) {
+            super(count);
+        }
+
+        @Override
+        public void run() {
+            if (started.compareAndSet(false, true)) {
+                super.run();
+            }
+        }
+
+        // 풀에서 아직 시작하지 않았으면 가져온다 -> 이후 풀에서는 실행되지 않는다
+        boolean claim() {
+            return started.compareAndSet(false, true);
+        }
+    }
+
+    private OptionalLong countInlineUnlessTimedOut(MemberSearchCondition condition) {
+        try {
+            return OptionalLong.of(countInline(condition));
+        } catch (RuntimeException e) {
+            if (isQueryTimeout(e)) {
+                log.warn("count query for {} timed out after {}ms", condition, timeoutMillis);
+                return OptionalLong.empty();
+            }
+            throw e;
+        }
+    }
+
+    // jpa 의 QueryTimeoutException 은 트랜잭션을 롤백 표시하지 않는다 -> content 는 그대로 돌려줄 수 있다
+    private static boolean isQueryTimeout(Throwable e) {
+        return e instanceof javax.persistence.QueryTimeoutException || e instanceof QueryTimeoutException;
+    }
+
+    private long countInline(MemberSearchCondition condition) {
+        return countCache.get(condition, () -> MemberSearchQuery.of(queryFactory, condition)
+                .count()
+                .setHint("javax.persistence.query.timeout", timeoutMillis)
+                .fetchOne());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
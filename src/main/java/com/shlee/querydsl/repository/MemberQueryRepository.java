@@ -1,21 +1,16 @@
 package com.shlee.querydsl.repository;
 
-import com.querydsl.core.types.dsl.BooleanExpression;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import com.shlee.querydsl.dto.MemberSearchCondition;
 import com.shlee.querydsl.dto.MemberTeamDTO;
-import com.shlee.querydsl.dto.QMemberTeamDTO;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
-import javax.persistence.EntityManager;
 import java.util.List;
 
-import static com.shlee.querydsl.entity.QMember.member;
-import static com.shlee.querydsl.entity.QTeam.team;
-import static org.springframework.util.StringUtils.isEmpty;
-
 @Repository
+@Transactional(readOnly = true)
 @RequiredArgsConstructor
 public class MemberQueryRepository {
 
@@ -24,32 +19,9 @@ public class MemberQueryRepository {
 
     //회원명, 팀명, 나이(ageGoe, ageLoe)
     public List<MemberTeamDTO> search(MemberSearchCondition condition) {
-        return queryFactory
-                .select(new QMemberTeamDTO(
-                        member.id.as("memberId"),
-                        member.username,
-                        member.age,
-                        team.id.as("teamId"),
-                        team.name.as("teamName")))
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe()))
+        return MemberSearchQuery.of(queryFactory, condition)
+                .selectMemberTeam()
                 .fetch();
     }
-    private BooleanExpression usernameEq(String username) {
-        return isEmpty(username) ? null : member.username.eq(username);
-    }
-    private BooleanExpression teamNameEq(String teamName) {
-        return isEmpty(teamName) ? null : team.name.eq(teamName);
-    }
-    private BooleanExpression ageGoe(Integer ageGoe) {
-        return ageGoe == null ? null : member.age.goe(ageGoe);
-    }
-    private BooleanExpression ageLoe(Integer ageLoe) {
-        return ageLoe == null ? null : member.age.loe(ageLoe);
-    }
 
 }
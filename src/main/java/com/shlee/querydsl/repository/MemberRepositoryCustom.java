@@ -1,17 +1,36 @@
 package com.shlee.querydsl.repository;
 
+import com.shlee.querydsl.dto.CursorPageDTO;
+import com.shlee.querydsl.dto.EstimatedPageDTO;
 import com.shlee.querydsl.dto.MemberSearchCondition;
 import com.shlee.querydsl.dto.MemberTeamDTO;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface MemberRepositoryCustom {
 
     List<MemberTeamDTO> search(MemberSearchCondition condition);
+    // 서버 사이드 커서로 한 건씩 읽는다. 트랜잭션 안에서 사용하고 반드시 close 해야 함
+    Stream<MemberTeamDTO> searchStream(MemberSearchCondition condition);
     // Pageable은 기본 offset이나 정보를 알 수 있다.
     Page<MemberTeamDTO> searchPageSimple(MemberSearchCondition condition, Pageable pageable);
     Page<MemberTeamDTO> searchPageComplex(MemberSearchCondition condition, Pageable pageable);
+    // content 와 count 를 서로 다른 커넥션에서 동시에 실행 -> 지연 시간이 합이 아니라 둘 중 긴 쪽
+    // count 가 시간 안에 끝나지 않으면 total 을 모르는 EstimatedTotalPage (totalExact=false)
+    Page<MemberTeamDTO> searchPageConcurrent(MemberSearchCondition condition, Pageable pageable);
+    // count 없이 limit + 1 건으로 다음 페이지 여부만 판단
+    Slice<MemberTeamDTO> searchSlice(MemberSearchCondition condition, Pageable pageable);
+    // 정확한 count 대신 cap 건까지만 센다 -> cap 을 넘으면 "cap 건 이상"
+    EstimatedPageDTO<MemberTeamDTO> searchEstimated(MemberSearchCondition condition, Pageable pageable);
+    // offset 대신 마지막 member.id 기준으로 seek -> 깊은 페이지도 첫 페이지와 비용이 같다
+    CursorPageDTO<MemberTeamDTO> searchByCursor(MemberSearchCondition condition, String cursor, int size);
+    // team 평균 나이보다 많은 member -> team 별 집계(derived table)와 한 번 조인, 행마다 서브쿼리를 돌리지 않는다
+    List<MemberTeamDTO> findOlderThanTeamAverage();
+    // team 별 최고령 member (같은 나이면 모두)
+    List<MemberTeamDTO> findOldestPerTeam();
 
 }
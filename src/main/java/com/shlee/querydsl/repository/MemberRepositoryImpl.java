@@ -1,116 +1,319 @@
 package com.shlee.querydsl.repository;
-import com.querydsl.core.QueryResults;
+import com.mysema.commons.lang.CloseableIterator;
 import com.querydsl.core.types.dsl.BooleanExpression;
 import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.shlee.querydsl.dto.CursorPageDTO;
+import com.shlee.querydsl.dto.EstimatedPageDTO;
+import com.shlee.querydsl.dto.EstimatedTotalPage;
 import com.shlee.querydsl.dto.MemberSearchCondition;
 import com.shlee.querydsl.dto.MemberTeamDTO;
-import com.shlee.querydsl.dto.QMemberTeamDTO;
-import com.shlee.querydsl.entity.Member;
+import org.hibernate.query.NativeQuery;
+import org.hibernate.type.IntegerType;
+import org.hibernate.type.LongType;
+import org.hibernate.type.StringType;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import javax.persistence.EntityManager;
+import java.util.ArrayList;
 import java.util.List;
-import static org.springframework.util.StringUtils.isEmpty;
+import java.util.OptionalLong;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import static com.shlee.querydsl.entity.QMember.member;
-import static com.shlee.querydsl.entity.QTeam.team;
+// 전부 조회 -> 읽기 전용 트랜잭션 (routing 이 켜져 있으면 replica)
+@Transactional(readOnly = true)
 public class MemberRepositoryImpl implements MemberRepositoryCustom {
 
+    // jpql 은 from 절 서브쿼리(derived table)를 지원하지 않아서 native
+    // 평균은 age * count > sum 으로 비교 -> avg 의 타입(h2 는 정수, mysql 은 decimal)과 무관하게 정확
+    private static final String OLDER_THAN_TEAM_AVERAGE_SQL =
+            "select m.member_id, m.username, m.age, t.team_id, t.name"
+                    + " from member m"
+                    + " join (select team_id, count(*) as member_count, sum(age) as age_sum"
+                    + "       from member group by team_id) s on s.team_id = m.team_id"
+                    + " join team t on t.team_id = m.team_id"
+                    + " where m.age * s.member_count > s.age_sum"
+                    + " order by m.member_id";
+    private static final String OLDEST_PER_TEAM_SQL =
+            "select m.member_id, m.username, m.age, t.team_id, t.name"
+                    + " from member m"
+                    + " join (select team_id, max(age) as max_age"
+                    + "       from member group by team_id) s on s.team_id = m.team_id and m.age = s.max_age"
+                    + " join team t on t.team_id = m.team_id"
+                    + " order by m.member_id";
+
+    private final EntityManager em;
     private final JPAQueryFactory queryFactory;
-    public MemberRepositoryImpl(EntityManager em) {
-        this.queryFactory = new JPAQueryFactory(em);
+    private final MemberCountCache countCache;
+    private final MemberSearchShapeCache shapeCache;
+    private final MemberPageCounter pageCounter;
+    private final MemberSearchResultCache resultCache;
+    private final TransactionTemplate readOnlyTx;
+    private final int streamFetchSize;
+    private final int estimatedCountCap;
+    private final long deferredJoinOffsetThreshold;
+    public MemberRepositoryImpl(EntityManager em, JPAQueryFactory queryFactory, MemberCountCache countCache, MemberSearchShapeCache shapeCache,
+                                MemberPageCounter pageCounter, MemberSearchResultCache resultCache,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${search.stream.fetch-size:1000}") int streamFetchSize,
+                                @Value("${search.estimated-count.cap:10000}") int estimatedCountCap,
+                                @Value("${search.deferred-join.offset-threshold:1000}") long deferredJoinOffsetThreshold) {
+        this.em = em;
+        this.queryFactory = queryFactory;
+        this.countCache = countCache;
+        this.shapeCache = shapeCache;
+        this.pageCounter = pageCounter;
+        this.resultCache = resultCache;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        readOnlyTx.setReadOnly(true);
+        this.streamFetchSize = streamFetchSize;
+        this.estimatedCountCap = estimatedCountCap;
+        this.deferredJoinOffsetThreshold = deferredJoinOffsetThreshold;
     }
     @Override
     //회원명, 팀명, 나이(ageGoe, ageLoe)
     public List<MemberTeamDTO> search(MemberSearchCondition condition) {
-        return queryFactory
-                .select(new QMemberTeamDTO(
-                        member.id.as("memberId"),
-                        member.username,
-                        member.age,
-                        team.id.as("teamId"),
-                        team.name.as("teamName")))
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe()))
-                .fetch();
+        // 조건 모양별로 미리 만들어 둔 JPQL 에 값만 바인딩
+        return shapeCache.search(condition);
     }
 
     @Override
-    public Page<MemberTeamDTO> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
-        QueryResults<MemberTeamDTO> results = queryFactory
-                .select(new QMemberTeamDTO(
-                        member.id.as("memberId"),
-                        member.username,
-                        member.age,
-                        team.id.as("teamId"),
-                        team.name.as("teamName")))
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe()))
-                .offset(pageable.getOffset())
-                .limit(pageable.getPageSize())
-                .fetchResults();
-        List<MemberTeamDTO> content = results.getResults();
-        long total = results.getTotal();
+    public Stream<MemberTeamDTO> searchStream(MemberSearchCondition condition) {
+        // iterate()는 hibernate ScrollableResults(FORWARD_ONLY) 로 동작해서 결과를 한 번에 올리지 않는다
+        CloseableIterator<MemberTeamDTO> iterator = MemberSearchQuery.of(queryFactory, condition)
+                .selectMemberTeam()
+                .setHint("org.hibernate.fetchSize", streamFetchSize)
+                .setHint("org.hibernate.readOnly", true)
+                .iterate();
 
-        return new PageImpl<>(content, pageable, total);
+        // DTO 프로젝션이라 영속성 컨텍스트에 쌓이는 엔티티가 없다 -> 중간에 clear 할 필요 없음
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false)
+                .onClose(iterator::close);
+    }
+
+    // 페이징 검색은 같은 조건 + 페이지의 결과를 잠깐 공유한다 (동시에 들어온 같은 요청은 DB 조회 한 번)
+    // 캐시 조회/대기는 트랜잭션 밖(SUPPORTS)에서 -> 읽기 전용 트랜잭션은 DB 조회하는 요청만 연다
+    // (트랜잭션을 시작하면 커넥션을 잡으므로 같은 검색이 몰릴 때 기다리는 요청이 풀을 다 쓰게 된다)
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public Page<MemberTeamDTO> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
+        return resultCache.get("searchPageSimple", condition, pageable,
+                readOnly(() -> loadPageSimple(condition, pageable)),
+                MemberRepositoryImpl::copyPage);
     }
 
     @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
     public Page<MemberTeamDTO> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
+        return resultCache.get("searchPageComplex", condition, pageable,
+                readOnly(() -> loadPageComplex(condition, pageable)),
+                MemberRepositoryImpl::copyPage);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public Page<MemberTeamDTO> searchPageConcurrent(MemberSearchCondition condition, Pageable pageable) {
+        return resultCache.get("searchPageConcurrent", condition, pageable,
+                readOnly(() -> loadPageConcurrent(condition, pageable)), MemberRepositoryImpl::copyPage,
+                // total 을 모르는 페이지는 캐시하지 않는다 (TTL 동안 다른 요청도 추정값을 받게 된다)
+                page -> !(page instanceof EstimatedTotalPage));
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public Slice<MemberTeamDTO> searchSlice(MemberSearchCondition condition, Pageable pageable) {
+        return resultCache.get("searchSlice", condition, pageable,
+                readOnly(() -> loadSlice(condition, pageable)),
+                slice -> slice.map(MemberTeamDTO::copy));
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public EstimatedPageDTO<MemberTeamDTO> searchEstimated(MemberSearchCondition condition, Pageable pageable) {
+        return resultCache.get("searchEstimated", condition, pageable,
+                readOnly(() -> loadEstimated(condition, pageable)),
+                page -> new EstimatedPageDTO<>(copyContent(page.getContent()), page.getPage(), page.getSize(),
+                        page.getTotal(), page.isExact()));
+    }
+
+    // 이미 트랜잭션 안이면 그 트랜잭션에 참여한다 (커밋 전 변경이 보이도록)
+    private <T> Supplier<T> readOnly(Supplier<T> load) {
+        return () -> readOnlyTx.execute(status -> load.get());
+    }
+
+    // 캐시된 결과는 다른 요청과 공유된다 -> DTO 를 복사해서 돌려준다 (EstimatedTotalPage.map 은 표시를 유지)
+    private static Page<MemberTeamDTO> copyPage(Page<MemberTeamDTO> page) {
+        return page.map(MemberTeamDTO::copy);
+    }
+
+    private static List<MemberTeamDTO> copyContent(List<MemberTeamDTO> content) {
+        return content.stream().map(MemberTeamDTO::copy).collect(Collectors.toList());
+    }
+
+    private Page<MemberTeamDTO> loadPageSimple(MemberSearchCondition condition, Pageable pageable) {
+        MemberSearchQuery searchQuery = MemberSearchQuery.of(queryFactory, condition);
+        List<MemberTeamDTO> content = fetchContent(searchQuery,
+                pageable.getOffset(), pageable.getPageSize(), pageable.getSort());
+        // fetchResults()는 content 쿼리를 그대로 count 로 바꿔서 team 조인까지 따라온다
+        long total = countCache.get(condition, () -> searchQuery.count().fetchOne());
+
+        return new PageImpl<>(content, pageable, total);
+    }
+
+    private Page<MemberTeamDTO> loadPageComplex(MemberSearchCondition condition, Pageable pageable) {
+        MemberSearchQuery searchQuery = MemberSearchQuery.of(queryFactory, condition);
         // fetch만 하면 content만 가져옴
-        List<MemberTeamDTO> content = queryFactory
-                .select(new QMemberTeamDTO(
-                        member.id.as("memberId"),
-                        member.username,
-                        member.age,
-                        team.id.as("teamId"),
-                        team.name.as("teamName")))
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe()))
-                .offset(pageable.getOffset())
-                .limit(pageable.getPageSize())
-                .fetch();
+        List<MemberTeamDTO> content = fetchContent(searchQuery,
+                pageable.getOffset(), pageable.getPageSize(), pageable.getSort());
 
-        JPAQuery<Member> countQuery = queryFactory
-                .select(member)
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
-                );
-
-        return PageableExecutionUtils.getPage(content, pageable, countQuery::fetchCount);
+        // count(member.id), teamName 조건이 없으면 team 조인도 없음
+        JPAQuery<Long> countQuery = searchQuery.count();
+
+        return PageableExecutionUtils.getPage(content, pageable,
+                () -> countCache.get(condition, countQuery::fetchOne));
         // fetchCount 했을 떄
 //        return new PageImpl<>(content, pageable, total);
     }
 
-    private BooleanExpression usernameEq(String username) {
-        return isEmpty(username) ? null : member.username.eq(username);
+    private Page<MemberTeamDTO> loadPageConcurrent(MemberSearchCondition condition, Pageable pageable) {
+        // count 를 먼저 다른 스레드(읽기 전용 트랜잭션)에서 시작해 두고 content 를 가져온다
+        Future<Long> total = pageCounter.start(condition);
+        try {
+            List<MemberTeamDTO> content = fetchContent(MemberSearchQuery.of(queryFactory, condition),
+                    pageable.getOffset(), pageable.getPageSize(), pageable.getSort());
+
+            // count 가 timeout 이면 total 을 모른다 -> 다음 페이지가 있다는 것만 아는 하한값 + totalExact=false
+            boolean[] unresolved = {false};
+            Page<MemberTeamDTO> page = PageableExecutionUtils.getPage(content, pageable, () -> {
+                OptionalLong counted = pageCounter.await(total, condition);
+                unresolved[0] = !counted.isPresent();
+                return counted.orElse(pageable.getOffset() + content.size() + (content.isEmpty() ? 0 : 1));
+            });
+            return unresolved[0] ? new EstimatedTotalPage<>(content, pageable, page.getTotalElements()) : page;
+        } finally {
+            // count 가 필요 없었으면(첫/마지막 페이지) 아직 시작 전인 count 는 실행하지 않는다
+            total.cancel(false);
+        }
+    }
+
+    private Slice<MemberTeamDTO> loadSlice(MemberSearchCondition condition, Pageable pageable) {
+        List<MemberTeamDTO> content = fetchContent(MemberSearchQuery.of(queryFactory, condition),
+                pageable.getOffset(), pageable.getPageSize() + 1, pageable.getSort());
+
+        boolean hasNext = content.size() > pageable.getPageSize();
+        if (hasNext) {
+            content = content.subList(0, pageable.getPageSize());
+        }
+        return new SliceImpl<>(content, pageable, hasNext);
+    }
+
+    private EstimatedPageDTO<MemberTeamDTO> loadEstimated(MemberSearchCondition condition, Pageable pageable) {
+        MemberSearchQuery searchQuery = MemberSearchQuery.of(queryFactory, condition);
+        List<MemberTeamDTO> content = fetchContent(searchQuery,
+                pageable.getOffset(), pageable.getPageSize(), pageable.getSort());
+
+        long offset = pageable.getOffset();
+        // 마지막 페이지면 PageableExecutionUtils 처럼 count 없이 정확한 total
+        if ((offset == 0 || !content.isEmpty()) && content.size() < pageable.getPageSize()) {
+            return estimatedPage(content, pageable, offset + content.size(), true);
+        }
+        // cap 을 지난 페이지는 세어 봐야 cap 이상인 것만 안다
+        // 비어 있으면 offset 이 결과 끝을 넘은 것 -> 아래에서 cap 까지 센다
+        if (!content.isEmpty() && offset + content.size() > estimatedCountCap) {
+            return estimatedPage(content, pageable, offset + content.size(), false);
+        }
+
+        // member.id 만 cap + 1 건까지 -> 조건에 맞는 행이 아무리 많아도 cap + 1 건에서 멈춘다
+        int capped = searchQuery
+                .select(member.id)
+                .limit(estimatedCountCap + 1)
+                .fetch()
+                .size();
+        boolean exact = capped <= estimatedCountCap;
+        return estimatedPage(content, pageable, exact ? capped : estimatedCountCap, exact);
+    }
+
+    // offset 이 threshold 이상이면 id 만 먼저 고르는 deferred join (깊은 페이지에서 버릴 행을 조인/projection 하지 않음)
+    private List<MemberTeamDTO> fetchContent(MemberSearchQuery searchQuery, long offset, long limit, Sort sort) {
+        if (offset >= deferredJoinOffsetThreshold) {
+            return searchQuery.fetchPageDeferred(offset, limit, sort);
+        }
+        return searchQuery.fetchPage(offset, limit, sort);
+    }
+
+    private static EstimatedPageDTO<MemberTeamDTO> estimatedPage(List<MemberTeamDTO> content, Pageable pageable,
+                                                                 long total, boolean exact) {
+        return new EstimatedPageDTO<>(content, pageable.getPageNumber(), pageable.getPageSize(), total, exact);
+    }
+
+    @Override
+    public List<MemberTeamDTO> findOlderThanTeamAverage() {
+        return fetchMemberTeam(OLDER_THAN_TEAM_AVERAGE_SQL);
+    }
+
+    @Override
+    public List<MemberTeamDTO> findOldestPerTeam() {
+        return fetchMemberTeam(OLDEST_PER_TEAM_SQL);
     }
-    private BooleanExpression teamNameEq(String teamName) {
-        return isEmpty(teamName) ? null : team.name.eq(teamName);
+
+    @SuppressWarnings("unchecked")
+    private List<MemberTeamDTO> fetchMemberTeam(String sql) {
+        // 컬럼 타입을 지정해 두면 결과마다 ResultSetMetaData 로 타입을 추론하지 않는다
+        List<Object[]> rows = em.createNativeQuery(sql)
+                .unwrap(NativeQuery.class)
+                .addScalar("member_id", LongType.INSTANCE)
+                .addScalar("username", StringType.INSTANCE)
+                .addScalar("age", IntegerType.INSTANCE)
+                .addScalar("team_id", LongType.INSTANCE)
+                .addScalar("name", StringType.INSTANCE)
+                .getResultList();
+        List<MemberTeamDTO> result = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            result.add(new MemberTeamDTO((Long) row[0], (String) row[1], (Integer) row[2], (Long) row[3], (String) row[4]));
+        }
+        return result;
     }
-    private BooleanExpression ageGoe(Integer ageGoe) {
-        return ageGoe == null ? null : member.age.goe(ageGoe);
+
+    @Override
+    public CursorPageDTO<MemberTeamDTO> searchByCursor(MemberSearchCondition condition, String cursor, int size) {
+        Long lastMemberId = MemberCursor.decode(cursor);
+
+        // size + 1 건을 가져와서 다음 페이지 존재 여부를 판단 (count 쿼리 없음)
+        List<MemberTeamDTO> content = MemberSearchQuery.of(queryFactory, condition)
+                .selectMemberTeam()
+                .where(memberIdGt(lastMemberId))
+                .orderBy(member.id.asc())
+                .limit(size + 1)
+                .fetch();
+
+        boolean hasNext = content.size() > size;
+        if (hasNext) {
+            content = content.subList(0, size);
+        }
+        String nextCursor = hasNext
+                ? MemberCursor.encode(content.get(content.size() - 1).getMemberId())
+                : null;
+        return new CursorPageDTO<>(content, size, hasNext, nextCursor);
     }
-    private BooleanExpression ageLoe(Integer ageLoe) {
-        return ageLoe == null ? null : member.age.loe(ageLoe);
+
+    private BooleanExpression memberIdGt(Long lastMemberId) {
+        return lastMemberId == null ? null : member.id.gt(lastMemberId);
     }
-}
\ No newline at end of file
+}
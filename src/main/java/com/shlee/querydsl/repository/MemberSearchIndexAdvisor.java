@@ -0,0 +1,206 @@
+package com.shlee.querydsl.repository;
+
+import com.querydsl.jpa.JPQLSerializer;
+import com.querydsl.jpa.impl.JPAProvider;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.Getter;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManager;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.shlee.querydsl.entity.QMember.member;
+
+/**
+ * MemberSearchCondition 의 16가지 shape 별 검색 쿼리(content, deferred join 1단계, count)를
+ * 설정된 DB 에서 EXPLAIN 해서 full scan / filesort 를 찾는다. (MySQL, H2)
+ * search.index-advisor.report-on-startup: true 면 기동할 때 결과를 로그로 남긴다.
+ */
+@Slf4j
+@Component
+public class MemberSearchIndexAdvisor implements ApplicationRunner {
+
+    private static final Pattern H2_TABLE_SCAN = Pattern.compile("/\\* [\\w.]*?(\\w+)\\.tableScan");
+
+    private final EntityManager em;
+    private final DataSource dataSource;
+    private final JPAQueryFactory queryFactory;
+    private final boolean reportOnStartup;
+
+    public MemberSearchIndexAdvisor(EntityManager em, JPAQueryFactory queryFactory, DataSource dataSource,
+                                    @Value("${search.index-advisor.report-on-startup:false}") boolean reportOnStartup) {
+        this.em = em;
+        this.dataSource = dataSource;
+        this.queryFactory = queryFactory;
+        this.reportOnStartup = reportOnStartup;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws SQLException {
+        if (!reportOnStartup) {
+            return;
+        }
+        for (Finding finding : explainAll()) {
+            if (finding.isFullScan() || finding.isFilesort()) {
+                log.warn("index advisor: {}", finding);
+            } else {
+                log.info("index advisor: {}", finding);
+            }
+        }
+    }
+
+    public List<Finding> explainAll() throws SQLException {
+        List<Finding> findings = new ArrayList<>();
+        try (Connection connection = dataSource.getConnection()) {
+            boolean mysql = connection.getMetaData().getDatabaseProductName().toLowerCase(Locale.ROOT).contains("mysql");
+            for (int shape = 0; shape < MemberSearchQuery.SHAPE_COUNT; shape++) {
+                MemberSearchQuery template = MemberSearchQuery.template(queryFactory, shape);
+                findings.add(explain(connection, mysql, shape, "content",
+                        template.selectMemberTeam().orderBy(member.id.asc())));
+                findings.add(explain(connection, mysql, shape, "ids",
+                        template.select(member.id).orderBy(member.id.asc())));
+                findings.add(explain(connection, mysql, shape, "count", template.count()));
+            }
+        }
+        return findings;
+    }
+
+    private Finding explain(Connection connection, boolean mysql, int shape, String query, JPAQuery<?> jpaQuery)
+            throws SQLException {
+        String sql = toSql(jpaQuery);
+        try (PreparedStatement statement = connection.prepareStatement("explain " + sql)) {
+            bindSampleValues(statement, shape);
+            try (ResultSet rs = statement.executeQuery()) {
+                return mysql ? mysqlFinding(shape, query, rs) : h2Finding(shape, query, rs);
+            }
+        }
+    }
+
+    // querydsl -> JPQL -> hibernate 가 만드는 SQL
+    private String toSql(JPAQuery<?> jpaQuery) {
+        JPQLSerializer serializer = new JPQLSerializer(JPAProvider.getTemplates(em), em);
+        serializer.serialize(jpaQuery.getMetadata(), false, null);
+        SessionFactoryImplementor sessionFactory =
+                em.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class);
+        return sessionFactory.getQueryPlanCache()
+                .getHQLQueryPlan(serializer.toString(), false, Collections.emptyMap())
+                .getSqlStrings()[0];
+    }
+
+    // where() 순서(username, teamName, ageGoe, ageLoe) 대로 ? 가 나온다
+    private static void bindSampleValues(PreparedStatement statement, int shape) throws SQLException {
+        int index = 1;
+        if ((shape & MemberSearchQuery.USERNAME) != 0) {
+            statement.setString(index++, "member1");
+        }
+        if ((shape & MemberSearchQuery.TEAM_NAME) != 0) {
+            statement.setString(index++, "teamA");
+        }
+        if ((shape & MemberSearchQuery.AGE_GOE) != 0) {
+            statement.setInt(index++, 20);
+        }
+        if ((shape & MemberSearchQuery.AGE_LOE) != 0) {
+            statement.setInt(index, 40);
+        }
+    }
+
+    // type=ALL -> full scan, Extra 에 Using filesort
+    // possible_keys 가 없는 full scan -> 쓸 수 있는 인덱스 자체가 없음 (데이터 양/통계와 무관)
+    private static Finding mysqlFinding(int shape, String query, ResultSet rs) throws SQLException {
+        List<String> fullScans = new ArrayList<>();
+        List<String> unindexed = new ArrayList<>();
+        boolean filesort = false;
+        StringBuilder plan = new StringBuilder();
+        while (rs.next()) {
+            String table = rs.getString("table");
+            String type = rs.getString("type");
+            String possibleKeys = rs.getString("possible_keys");
+            String extra = rs.getString("Extra");
+            if ("ALL".equalsIgnoreCase(type)) {
+                fullScans.add(table);
+                if (possibleKeys == null) {
+                    unindexed.add(table);
+                }
+            }
+            filesort |= extra != null && extra.contains("filesort");
+            plan.append(table).append('[').append(type).append(", possible_keys=").append(possibleKeys)
+                    .append(", key=").append(rs.getString("key"))
+                    .append(extra == null ? "" : ", " + extra).append("] ");
+        }
+        return new Finding(describe(shape), query, fullScans, unindexed, filesort, plan.toString().trim());
+    }
+
+    // H2 는 plan 텍스트: /* PUBLIC.MEMBER.tableScan */, 정렬에 인덱스를 쓰면 /* index sorted */
+    // H2 는 행 수에 1000 을 더해 scan 비용을 매겨서 빈 테이블에서도 쓸 수 있는 인덱스를 고른다 -> tableScan = 인덱스 없음
+    private static Finding h2Finding(int shape, String query, ResultSet rs) throws SQLException {
+        rs.next();
+        String plan = rs.getString(1);
+        List<String> fullScans = new ArrayList<>();
+        Matcher matcher = H2_TABLE_SCAN.matcher(plan);
+        while (matcher.find()) {
+            fullScans.add(matcher.group(1).toLowerCase(Locale.ROOT));
+        }
+        boolean filesort = plan.contains("ORDER BY") && !plan.contains("index sorted");
+        return new Finding(describe(shape), query, fullScans, fullScans, filesort, plan.replaceAll("\\s+", " "));
+    }
+
+    private static String describe(int shape) {
+        List<String> conditions = new ArrayList<>();
+        if ((shape & MemberSearchQuery.USERNAME) != 0) {
+            conditions.add("username");
+        }
+        if ((shape & MemberSearchQuery.TEAM_NAME) != 0) {
+            conditions.add("teamName");
+        }
+        if ((shape & MemberSearchQuery.AGE_GOE) != 0) {
+            conditions.add("ageGoe");
+        }
+        if ((shape & MemberSearchQuery.AGE_LOE) != 0) {
+            conditions.add("ageLoe");
+        }
+        return conditions.isEmpty() ? "(none)" : String.join("+", conditions);
+    }
+
+    @Getter
+    @ToString
+    public static class Finding {
+        private final String shape;
+        private final String query;
+        private final List<String> fullScans;
+        // full scan 중 쓸 수 있는 인덱스가 없는 테이블
+        private final List<String> unindexed;
+        private final boolean filesort;
+        private final String plan;
+
+        Finding(String shape, String query, List<String> fullScans, List<String> unindexed, boolean filesort,
+                String plan) {
+            this.shape = shape;
+            this.query = query;
+            this.fullScans = fullScans;
+            this.unindexed = unindexed;
+            this.filesort = filesort;
+            this.plan = plan;
+        }
+
+        public boolean isFullScan() {
+            return !fullScans.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package com.shlee.querydsl.repository;
+
+import com.querydsl.core.support.PathsExtractor;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.Order;
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.ParamExpression;
+import com.querydsl.core.types.Path;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.ComparableExpressionBase;
+import com.querydsl.core.types.dsl.Param;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.shlee.querydsl.dto.MemberSearchCondition;
+import com.shlee.querydsl.dto.MemberTeamDTO;
+import com.shlee.querydsl.dto.QMemberTeamDTO;
+import org.springframework.data.domain.Sort;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.shlee.querydsl.entity.QMember.member;
+import static com.shlee.querydsl.entity.QTeam.team;
+import static org.springframework.util.StringUtils.hasText;
+
+/**
+ * MemberSearchCondition 으로 검색 쿼리를 조립한다.
+ * team 조인은 team 조건(teamName)이나 projection에 team 컬럼이 있을 때만 붙인다. (team 조건이 있으면 inner join)
+ * -> "나이 범위만" 검색하는 count 쿼리에는 조인이 빠진다.
+ */
+public class MemberSearchQuery {
+
+    // 조건 4개의 on/off 조합 = 쿼리 모양(shape) 16가지
+    static final int USERNAME = 1;
+    static final int TEAM_NAME = 1 << 1;
+    static final int AGE_GOE = 1 << 2;
+    static final int AGE_LOE = 1 << 3;
+    static final int SHAPE_COUNT = 16;
+
+    // template() 으로 만든 쿼리는 값 대신 이 파라미터를 가진다
+    static final Param<String> USERNAME_PARAM = new Param<>(String.class, "username");
+    static final Param<String> TEAM_NAME_PARAM = new Param<>(String.class, "teamName");
+    static final Param<Integer> AGE_GOE_PARAM = new Param<>(Integer.class, "ageGoe");
+    static final Param<Integer> AGE_LOE_PARAM = new Param<>(Integer.class, "ageLoe");
+
+    // 정렬 가능한 속성 = 인덱스가 있는 member 컬럼만 (team.name 등은 조인 결과 전체를 filesort)
+    private static final Map<String, ComparableExpressionBase<?>> SORTABLE = new LinkedHashMap<>();
+
+    static {
+        SORTABLE.put("id", member.id);
+        SORTABLE.put("username", member.username);
+        SORTABLE.put("age", member.age);
+    }
+
+    private final JPAQueryFactory queryFactory;
+    private final MemberSearchCondition condition;
+    private final int shape;
+
+    private MemberSearchQuery(JPAQueryFactory queryFactory, MemberSearchCondition condition, int shape) {
+        this.queryFactory = queryFactory;
+        this.condition = condition;
+        this.shape = shape;
+    }
+
+    public static MemberSearchQuery of(JPAQueryFactory queryFactory, MemberSearchCondition condition) {
+        return new MemberSearchQuery(queryFactory, condition, shapeOf(condition));
+    }
+
+    // 값이 바인딩되지 않은 shape 별 쿼리 템플릿, 값은 params() 로 바인딩한다
+    static MemberSearchQuery template(JPAQueryFactory queryFactory, int shape) {
+        return new MemberSearchQuery(queryFactory, null, shape);
+    }
+
+    static int shapeOf(MemberSearchCondition condition) {
+        int shape = 0;
+        if (hasText(condition.getUsername())) {
+            shape |= USERNAME;
+        }
+        if (hasText(condition.getTeamName())) {
+            shape |= TEAM_NAME;
+        }
+        if (condition.getAgeGoe() != null) {
+            shape |= AGE_GOE;
+        }
+        if (condition.getAgeLoe() != null) {
+            shape |= AGE_LOE;
+        }
+        return shape;
+    }
+
+    static Map<ParamExpression<?>, Object> params(MemberSearchCondition condition) {
+        Map<ParamExpression<?>, Object> params = new HashMap<>();
+        int shape = shapeOf(condition);
+        if ((shape & USERNAME) != 0) {
+            params.put(USERNAME_PARAM, condition.getUsername());
+        }
+        if ((shape & TEAM_NAME) != 0) {
+            params.put(TEAM_NAME_PARAM, condition.getTeamName());
+        }
+        if ((shape & AGE_GOE) != 0) {
+            params.put(AGE_GOE_PARAM, condition.getAgeGoe());
+        }
+        if ((shape & AGE_LOE) != 0) {
+            params.put(AGE_LOE_PARAM, condition.getAgeLoe());
+        }
+        return params;
+    }
+
+    public static QMemberTeamDTO memberTeamProjection() {
+        return new QMemberTeamDTO(
+                member.id.as("memberId"),
+                member.username,
+                member.age,
+                team.id.as("teamId"),
+                team.name.as("teamName"));
+    }
+
+    // MemberTeamDTO는 team.name 을 보여줘야 하므로 항상 조인
+    public JPAQuery<MemberTeamDTO> selectMemberTeam() {
+        return select(memberTeamProjection());
+    }
+
+    public <T> JPAQuery<T> select(Expression<T> projection) {
+        JPAQuery<T> query = queryFactory
+                .select(projection)
+                .from(member);
+        joinTeam(query, usesTeam(projection));
+        return query.where(where());
+    }
+
+    // 엔티티를 select 하지 않고 count(member.id) 만 센다
+    public JPAQuery<Long> count() {
+        JPAQuery<Long> query = queryFactory
+                .select(member.id.count())
+                .from(member);
+        joinTeam(query, false);
+        return query.where(where());
+    }
+
+    // Sort -> OrderSpecifier, 항상 member.id 를 마지막에 붙여서 같은 값끼리도 순서가 고정된다
+    public static OrderSpecifier<?>[] orderBy(Sort sort) {
+        List<OrderSpecifier<?>> orders = new ArrayList<>();
+        Order tieBreaker = Order.ASC;
+        boolean hasId = false;
+        for (Sort.Order order : sort) {
+            ComparableExpressionBase<?> path = SORTABLE.get(order.getProperty());
+            // ignoreCase 는 lower(...) 정렬이라 인덱스를 못 탄다
+            if (path == null || order.isIgnoreCase()) {
+                throw new UnsupportedSortException(order.getProperty(), SORTABLE.keySet());
+            }
+            Order direction = order.isAscending() ? Order.ASC : Order.DESC;
+            if (orders.isEmpty()) {
+                tieBreaker = direction;
+            }
+            orders.add(order.isAscending() ? path.asc() : path.desc());
+            hasId |= path == member.id;
+        }
+        if (!hasId) {
+            orders.add(tieBreaker == Order.ASC ? member.id.asc() : member.id.desc());
+        }
+        return orders.toArray(new OrderSpecifier<?>[0]);
+    }
+
+    public List<MemberTeamDTO> fetchPage(long offset, long limit) {
+        return fetchPage(offset, limit, Sort.unsorted());
+    }
+
+    public List<MemberTeamDTO> fetchPageDeferred(long offset, long limit) {
+        return fetchPageDeferred(offset, limit, Sort.unsorted());
+    }
+
+    // 한 번에: team 조인 + DTO projection 을 offset 만큼 만들고 버린다
+    public List<MemberTeamDTO> fetchPage(long offset, long limit, Sort sort) {
+        return selectMemberTeam()
+                .orderBy(orderBy(sort))
+                .offset(offset)
+                .limit(limit)
+                .fetch();
+    }
+
+    // deferred join: 1단계는 member.id 만 offset/limit (인덱스만 읽음), 2단계는 그 id 들만 조인 + projection
+    public List<MemberTeamDTO> fetchPageDeferred(long offset, long limit, Sort sort) {
+        List<Long> ids = select(member.id)
+                .orderBy(orderBy(sort))
+                .offset(offset)
+                .limit(limit)
+                .fetch();
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Map<Long, MemberTeamDTO> byId = new HashMap<>();
+        for (MemberTeamDTO dto : queryFactory
+                .select(memberTeamProjection())
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(member.id.in(ids))
+                .fetch()) {
+            byId.put(dto.getMemberId(), dto);
+        }
+        // IN 결과는 순서가 보장되지 않아서 1단계 순서대로 다시 맞춘다
+        // 두 단계 사이에 삭제된 member 는 빠진다 (null 을 넣지 않음)
+        List<MemberTeamDTO> content = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            MemberTeamDTO dto = byId.get(id);
+            if (dto != null) {
+                content.add(dto);
+            }
+        }
+        return content;
+    }
+
+    public BooleanExpression[] where() {
+        return new BooleanExpression[]{usernameEq(), teamNameEq(), ageGoe(), ageLoe()};
+    }
+
+    public boolean hasTeamPredicate() {
+        return (shape & TEAM_NAME) != 0;
+    }
+
+    // team.name 조건이 있으면 team 없는 member 는 어차피 걸러지므로 inner join
+    // -> DB 가 team(idx_team_name)부터 읽고 member(idx_member_team_age)로 들어갈 수 있다
+    private void joinTeam(JPAQuery<?> query, boolean projectionUsesTeam) {
+        if (hasTeamPredicate()) {
+            query.join(member.team, team);
+        } else if (projectionUsesTeam) {
+            query.leftJoin(member.team, team);
+        }
+    }
+
+    private static boolean usesTeam(Expression<?> projection) {
+        List<Path<?>> paths = new ArrayList<>();
+        projection.accept(PathsExtractor.DEFAULT, paths);
+        for (Path<?> path : paths) {
+            if (path.getRoot().equals(team)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean bound() {
+        return condition != null;
+    }
+
+    private BooleanExpression usernameEq() {
+        if ((shape & USERNAME) == 0) {
+            return null;
+        }
+        return bound() ? member.username.eq(condition.getUsername()) : member.username.eq(USERNAME_PARAM);
+    }
+    private BooleanExpression teamNameEq() {
+        if ((shape & TEAM_NAME) == 0) {
+            return null;
+        }
+        return bound() ? team.name.eq(condition.getTeamName()) : team.name.eq(TEAM_NAME_PARAM);
+    }
+    private BooleanExpression ageGoe() {
+        if ((shape & AGE_GOE) == 0) {
+            return null;
+        }
+        return bound() ? member.age.goe(condition.getAgeGoe()) : member.age.goe(AGE_GOE_PARAM);
+    }
+    private BooleanExpression ageLoe() {
+        if ((shape & AGE_LOE) == 0) {
+            return null;
+        }
+        return bound() ? member.age.loe(condition.getAgeLoe()) : member.age.loe(AGE_LOE_PARAM);
+    }
+}
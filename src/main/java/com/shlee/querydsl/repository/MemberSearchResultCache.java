@@ -0,0 +1,156 @@
+package com.shlee.querydsl.repository;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.shlee.querydsl.dto.MemberSearchCondition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * 페이징 검색 결과 캐시 (검색 메서드 + 조건 + 페이지 + 정렬 별)
+ * 같은 key 로 동시에 들어온 miss 는 먼저 온 요청의 DB 조회 하나를 같이 기다린다 (single-flight).
+ * Member/Team 이 바뀌면 전부 비운다.
+ * get 은 트랜잭션 밖에서 부른다 -> 기다리는 요청이 커넥션을 잡고 있지 않도록 (loader 안에서 트랜잭션을 연다)
+ * 결과(DTO)는 바꿀 수 있는 객체라서 캐시에 둔 것은 그대로 두고 요청마다 copy 한 것을 돌려준다 (먼저 조회한 요청 포함).
+ */
+@Component
+public class MemberSearchResultCache {
+
+    // 먼저 온 요청이 호출 스레드(자신의 트랜잭션)에서 조회하고, 나머지는 그 future 를 기다린다
+    private final AsyncCache<Key, Object> cache;
+    private final boolean enabled;
+    // 조회 중에 무효화되면 그 결과는 기다리던 요청에만 주고 캐시에는 남기지 않는다
+    private final AtomicLong generation = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    public MemberSearchResultCache(@Value("${search.result-cache.maximum-size:1000}") long maximumSize,
+                                   @Value("${search.result-cache.expire-after-write:5s}") Duration expireAfterWrite) {
+        // maximum-size: 0 이면 캐시를 쓰지 않는다 (벤치마크 등)
+        this.enabled = maximumSize > 0;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .buildAsync();
+    }
+
+    public <T> T get(String method, MemberSearchCondition condition, Pageable pageable, Supplier<T> loader,
+                     UnaryOperator<T> copy) {
+        return get(method, condition, pageable, loader, copy, result -> true);
+    }
+
+    // cacheable 이 false 인 결과는 그때 기다리던 요청에만 주고 캐시에는 남기지 않는다
+    @SuppressWarnings("unchecked")
+    public <T> T get(String method, MemberSearchCondition condition, Pageable pageable, Supplier<T> loader,
+                     UnaryOperator<T> copy, Predicate<? super T> cacheable) {
+        // 이 트랜잭션에서 이미 member를 바꿨다면 커밋 전 결과를 다른 요청과 공유하지 않는다
+        if (!enabled || TransactionSynchronizationManager.hasResource(this)) {
+            return loader.get();
+        }
+
+        Key key = new Key(method, MemberCountCache.normalize(condition),
+                pageable.getOffset(), pageable.getPageSize(), pageable.getSort());
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> existing = cache.asMap().putIfAbsent(key, flight);
+        if (existing != null) {
+            (existing.isDone() ? hits : coalesced).increment();
+            return copy.apply((T) join(existing));
+        }
+
+        misses.increment();
+        long startedAt = generation.get();
+        try {
+            T result = loader.get();
+            flight.complete(result);
+            if (generation.get() != startedAt || !cacheable.test(result)) {
+                cache.asMap().remove(key, flight);
+            }
+            return copy.apply(result);
+        } catch (RuntimeException | Error e) {
+            // 실패한 결과는 캐시하지 않는다 (기다리던 요청은 같은 예외)
+            cache.asMap().remove(key, flight);
+            flight.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        cache.synchronous().invalidateAll();
+    }
+
+    // hitRate 는 DB 조회 없이 응답한 비율 (hit + coalesced)
+    public Map<String, Number> stats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long coalescedCount = coalesced.sum();
+        long requests = hitCount + missCount + coalescedCount;
+
+        Map<String, Number> stats = new LinkedHashMap<>();
+        stats.put("requests", requests);
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("coalesced", coalescedCount);
+        stats.put("hitRate", requests == 0 ? 0.0 : (double) (hitCount + coalescedCount) / requests);
+        stats.put("size", cache.synchronous().estimatedSize());
+        return stats;
+    }
+
+    @EventListener
+    public void onMemberDataChanged(MemberDataChangedEvent event) {
+        invalidateAll();
+        // 커밋 전에 다른 트랜잭션이 예전 결과를 다시 채울 수 있어서 트랜잭션이 끝날 때 한 번 더 비운다
+        if (TransactionSynchronizationManager.isSynchronizationActive()
+                && !TransactionSynchronizationManager.hasResource(this)) {
+            TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(MemberSearchResultCache.this);
+                    invalidateAll();
+                }
+            });
+        }
+    }
+
+    private static Object join(CompletableFuture<Object> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    @lombok.Value
+    static class Key {
+        String method;
+        MemberSearchCondition condition;
+        long offset;
+        int size;
+        Sort sort;
+    }
+}
@@ -0,0 +1,96 @@
+package com.shlee.querydsl.repository;
+
+import com.querydsl.core.types.FactoryExpression;
+import com.querydsl.jpa.JPQLSerializer;
+import com.querydsl.jpa.impl.JPAProvider;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.querydsl.jpa.impl.JPAUtil;
+import com.shlee.querydsl.dto.MemberSearchCondition;
+import com.shlee.querydsl.dto.MemberTeamDTO;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * search(condition) 용 JPQL 을 조건 모양(shape)별로 한 번만 만들어 둔다.
+ * 요청마다 querydsl 표현식 트리 생성 + JPQL 직렬화를 하지 않고 파라미터 값만 바인딩한다.
+ * shape 는 MemberSearchCondition 조건 on/off 조합이라 최대 16개 -> 크기 제한이 필요 없다.
+ */
+@Component
+public class MemberSearchShapeCache {
+
+    private final EntityManager em;
+    private final JPAQueryFactory queryFactory;
+    private final AtomicReferenceArray<PreparedShape> shapes =
+            new AtomicReferenceArray<>(MemberSearchQuery.SHAPE_COUNT);
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public MemberSearchShapeCache(EntityManager em, JPAQueryFactory queryFactory) {
+        this.em = em;
+        this.queryFactory = queryFactory;
+    }
+
+    public List<MemberTeamDTO> search(MemberSearchCondition condition) {
+        PreparedShape prepared = prepared(MemberSearchQuery.shapeOf(condition));
+
+        Query query = em.createQuery(prepared.jpql);
+        JPAUtil.setConstants(query, prepared.constantToLabel, MemberSearchQuery.params(condition));
+
+        List<?> rows = query.getResultList();
+        List<MemberTeamDTO> result = new ArrayList<>(rows.size());
+        for (Object row : rows) {
+            result.add(prepared.projection.newInstance((Object[]) row));
+        }
+        return result;
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    private PreparedShape prepared(int shape) {
+        PreparedShape prepared = shapes.get(shape);
+        if (prepared != null) {
+            hits.increment();
+            return prepared;
+        }
+        // 동시에 처음 들어오면 두 번 만들 수도 있지만 결과가 같으므로 먼저 넣은 것을 쓴다
+        misses.increment();
+        shapes.compareAndSet(shape, null, prepare(shape));
+        return shapes.get(shape);
+    }
+
+    private PreparedShape prepare(int shape) {
+        JPAQuery<MemberTeamDTO> template = MemberSearchQuery.template(queryFactory, shape).selectMemberTeam();
+        JPQLSerializer serializer = new JPQLSerializer(JPAProvider.getTemplates(em), em);
+        serializer.serialize(template.getMetadata(), false, null);
+        @SuppressWarnings("unchecked")
+        FactoryExpression<MemberTeamDTO> projection =
+                (FactoryExpression<MemberTeamDTO>) template.getMetadata().getProjection();
+        return new PreparedShape(serializer.toString(), serializer.getConstantToAllLabels(), projection);
+    }
+
+    private static class PreparedShape {
+        private final String jpql;
+        private final Map<Object, String> constantToLabel;
+        private final FactoryExpression<MemberTeamDTO> projection;
+
+        PreparedShape(String jpql, Map<Object, String> constantToLabel, FactoryExpression<MemberTeamDTO> projection) {
+            this.jpql = jpql;
+            this.constantToLabel = constantToLabel;
+            this.projection = projection;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.shlee.querydsl.repository;
+
+import com.shlee.querydsl.entity.Team;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
+
+import javax.persistence.QueryHint;
+import java.util.Optional;
+
+public interface TeamRepository extends JpaRepository<Team, Long>, TeamRepositoryCustom {
+
+    // 쿼리 캐시(team-by-name 리전) -> 결과 id 만 저장하고 엔티티는 team 리전에서 꺼낸다
+    @QueryHints({
+            @QueryHint(name = "org.hibernate.cacheable", value = "true"),
+            @QueryHint(name = "org.hibernate.cacheRegion", value = "team-by-name")
+    })
+    Optional<Team> findByName(String name);
+}
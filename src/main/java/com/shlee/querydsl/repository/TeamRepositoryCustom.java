@@ -0,0 +1,10 @@
+package com.shlee.querydsl.repository;
+
+import com.shlee.querydsl.dto.TeamRosterDTO;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+public interface TeamRepositoryCustom {
+
+    Page<TeamRosterDTO> findRosters(Pageable pageable);
+}
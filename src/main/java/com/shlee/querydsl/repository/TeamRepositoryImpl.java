@@ -0,0 +1,68 @@
+package com.shlee.querydsl.repository;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.shlee.querydsl.dto.MemberDTO;
+import com.shlee.querydsl.dto.TeamRosterDTO;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.shlee.querydsl.entity.QMember.member;
+import static com.shlee.querydsl.entity.QTeam.team;
+
+@Transactional(readOnly = true)
+public class TeamRepositoryImpl implements TeamRepositoryCustom {
+
+    private final JPAQueryFactory queryFactory;
+
+    public TeamRepositoryImpl(JPAQueryFactory queryFactory) {
+        this.queryFactory = queryFactory;
+    }
+
+    @Override
+    public Page<TeamRosterDTO> findRosters(Pageable pageable) {
+        // 1. team 만 페이징 (컬렉션 fetch join + 페이징은 hibernate 가 메모리에서 페이징한다)
+        List<Tuple> teams = queryFactory
+                .select(team.id, team.name)
+                .from(team)
+                .orderBy(team.id.asc())
+                .offset(pageable.getOffset())
+                .limit(pageable.getPageSize())
+                .fetch();
+
+        Map<Long, TeamRosterDTO> rosters = new LinkedHashMap<>();
+        for (Tuple t : teams) {
+            Long teamId = t.get(team.id);
+            rosters.put(teamId, new TeamRosterDTO(teamId, t.get(team.name)));
+        }
+
+        // 2. 페이지에 속한 team 들의 member 를 IN 쿼리 한 번으로 가져와서 메모리에서 묶는다
+        if (!rosters.isEmpty()) {
+            List<Tuple> members = queryFactory
+                    .select(member.team.id, member.username, member.age)
+                    .from(member)
+                    .where(member.team.id.in(rosters.keySet()))
+                    .orderBy(member.id.asc())
+                    .fetch();
+            for (Tuple m : members) {
+                rosters.get(m.get(member.team.id))
+                        .getMembers()
+                        .add(new MemberDTO(m.get(member.username), m.get(member.age)));
+            }
+        }
+
+        JPAQuery<Long> countQuery = queryFactory
+                .select(team.count())
+                .from(team);
+
+        return PageableExecutionUtils.getPage(new ArrayList<>(rosters.values()), pageable, countQuery::fetchOne);
+    }
+}
@@ -0,0 +1,269 @@
+package com.shlee.querydsl.repository;
+
+import com.shlee.querydsl.entity.Member;
+import com.shlee.querydsl.entity.Team;
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.action.spi.BeforeTransactionCompletionProcess;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.proxy.HibernateProxy;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.event.EventListener;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * member insert / delete / age 변경 / changeTeam 을 team_stats 에 증분 반영한다.
+ * - 트랜잭션 동안 team 별 변화량을 모았다가 커밋 직전(flush 후) team 마다 statement 한 번
+ *   -> 자주 바뀌는 team_stats 행의 잠금은 커밋 직전 잠깐만 잡힌다
+ * - min/max 였던 나이가 빠지면 새 min/max 를 모르므로 stale 로 표시 (읽을 때 TeamStatsRepository 가 다시 계산)
+ * - 벌크 update/delete 는 어느 행이 바뀌었는지 모르므로 전부 stale
+ */
+@Component
+public class TeamStatsMaintainer implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    private final Map<SharedSessionContractImplementor, Pending> pendingBySession = new ConcurrentHashMap<>();
+    // EntityManagerFactory 를 만들 때 이 리스너가 필요하므로 나중에 꺼낸다
+    private final ObjectProvider<EntityManagerFactory> emf;
+
+    public TeamStatsMaintainer(ObjectProvider<EntityManagerFactory> emf) {
+        this.emf = emf;
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof Team) {
+            pending(event.getSession()).delta((Long) event.getId()).created = true;
+        } else if (event.getEntity() instanceof Member) {
+            Object[] state = event.getState();
+            Long teamId = teamId(state[index(event.getPersister(), "team")]);
+            if (teamId != null) {
+                pending(event.getSession()).delta(teamId).add(age(event.getPersister(), state));
+            }
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (!(event.getEntity() instanceof Member)) {
+            return;
+        }
+        EntityPersister persister = event.getPersister();
+        Long teamId = teamId(event.getState()[index(persister, "team")]);
+        int age = age(persister, event.getState());
+        Object[] oldState = event.getOldState();
+        if (oldState == null) {
+            // 이전 값을 모르는 update (detached 엔티티 update 등) -> 다시 계산
+            if (teamId != null) {
+                pending(event.getSession()).delta(teamId).stale = true;
+            }
+            return;
+        }
+        Long oldTeamId = teamId(oldState[index(persister, "team")]);
+        int oldAge = age(persister, oldState);
+        if (Objects.equals(teamId, oldTeamId) && age == oldAge) {
+            return;
+        }
+        Pending pending = pending(event.getSession());
+        if (oldTeamId != null) {
+            pending.delta(oldTeamId).remove(oldAge);
+        }
+        if (teamId != null) {
+            pending.delta(teamId).add(age);
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof Team) {
+            pending(event.getSession()).delta((Long) event.getId()).deleted = true;
+        } else if (event.getEntity() instanceof Member) {
+            Object[] state = event.getDeletedState();
+            Long teamId = teamId(state[index(event.getPersister(), "team")]);
+            if (teamId != null) {
+                pending(event.getSession()).delta(teamId).remove(age(event.getPersister(), state));
+            }
+        }
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return false;
+    }
+
+    @EventListener
+    public void onMemberDataChanged(MemberDataChangedEvent event) {
+        if (!event.isBulk() || !TransactionSynchronizationManager.isActualTransactionActive()) {
+            return;
+        }
+        EntityManager em = EntityManagerFactoryUtils.getTransactionalEntityManager(emf.getObject());
+        if (em != null) {
+            pending(em.unwrap(SessionImplementor.class)).bulk = true;
+        }
+    }
+
+    // 세션(= 트랜잭션)마다 한 번 커밋 직전 반영을 등록한다. 롤백되면 버린다
+    private Pending pending(SessionImplementor session) {
+        return pendingBySession.computeIfAbsent(session, s -> {
+            session.getActionQueue().registerProcess((BeforeTransactionCompletionProcess) completing -> {
+                Pending pending = pendingBySession.remove(completing);
+                if (pending != null) {
+                    completing.doWork(connection -> apply(connection, pending));
+                }
+            });
+            session.getActionQueue().registerProcess(
+                    (AfterTransactionCompletionProcess) (success, completed) -> pendingBySession.remove(completed));
+            return new Pending();
+        });
+    }
+
+    private static void apply(Connection connection, Pending pending) throws SQLException {
+        if (pending.bulk) {
+            try (PreparedStatement ps = connection.prepareStatement("update team_stats set stale = true")) {
+                ps.executeUpdate();
+            }
+        }
+        // team_id 순서로 -> 여러 team 을 바꾸는 트랜잭션끼리 서로 반대 순서로 잠그지 않는다
+        for (Map.Entry<Long, Delta> entry : pending.deltas.entrySet()) {
+            entry.getValue().apply(connection, entry.getKey());
+        }
+    }
+
+    private static int index(EntityPersister persister, String property) {
+        return persister.getEntityMetamodel().getPropertyIndex(property);
+    }
+
+    private static int age(EntityPersister persister, Object[] state) {
+        return (Integer) state[index(persister, "age")];
+    }
+
+    // 프록시를 초기화하지 않고 id 만 꺼낸다
+    private static Long teamId(Object team) {
+        if (team == null) {
+            return null;
+        }
+        if (team instanceof HibernateProxy) {
+            return (Long) ((HibernateProxy) team).getHibernateLazyInitializer().getIdentifier();
+        }
+        return ((Team) team).getId();
+    }
+
+    private static class Pending {
+
+        private final Map<Long, Delta> deltas = new TreeMap<>();
+        private boolean bulk;
+
+        Delta delta(Long teamId) {
+            return deltas.computeIfAbsent(teamId, id -> new Delta());
+        }
+    }
+
+    private static class Delta {
+
+        private long count;
+        private long sum;
+        private Integer addedMin;
+        private Integer addedMax;
+        private Integer removedMin;
+        private Integer removedMax;
+        private boolean created;
+        private boolean deleted;
+        private boolean stale;
+
+        void add(int age) {
+            count++;
+            sum += age;
+            addedMin = addedMin == null ? age : Math.min(addedMin, age);
+            addedMax = addedMax == null ? age : Math.max(addedMax, age);
+        }
+
+        void remove(int age) {
+            count--;
+            sum -= age;
+            removedMin = removedMin == null ? age : Math.min(removedMin, age);
+            removedMax = removedMax == null ? age : Math.max(removedMax, age);
+        }
+
+        void apply(Connection connection, Long teamId) throws SQLException {
+            if (deleted) {
+                execute(connection, "delete from team_stats where team_id = ?", teamId);
+            } else if (created) {
+                // 같은 트랜잭션에서 만든 team -> 모은 값이 곧 전체 (중간에 빠진 member 가 있으면 다시 계산)
+                execute(connection, "insert into team_stats (team_id, member_count, age_sum, min_age, max_age, stale)"
+                                + " values (?, ?, ?, ?, ?, ?)",
+                        teamId, count, sum, addedMin, addedMax, stale || removedMin != null);
+            } else {
+                update(connection, teamId);
+            }
+        }
+
+        // 행이 없는 team(이전 데이터)은 stale 행을 만든다 -> 읽을 때 다시 계산 (TeamStatsRepository 가 계산 중이면 그 뒤에 반영)
+        private void update(Connection connection, Long teamId) throws SQLException {
+            StringBuilder sql = new StringBuilder("update team_stats set ");
+            List<Object> params = new ArrayList<>();
+            // mysql 은 set 을 왼쪽부터 적용하므로 이전 min/max 를 보는 stale 이 맨 앞
+            if (stale) {
+                sql.append("stale = true, ");
+            } else if (removedMin != null) {
+                sql.append("stale = case when stale or ? <= min_age or ? >= max_age then true else false end, ");
+                params.add(removedMin);
+                params.add(removedMax);
+            }
+            sql.append("member_count = member_count + ?, age_sum = age_sum + ?");
+            params.add(count);
+            params.add(sum);
+            if (addedMin != null) {
+                sql.append(", min_age = least(coalesce(min_age, ?), ?), max_age = greatest(coalesce(max_age, ?), ?)");
+                params.add(addedMin);
+                params.add(addedMin);
+                params.add(addedMax);
+                params.add(addedMax);
+            }
+            sql.append(" where team_id = ?");
+            params.add(teamId);
+            if (execute(connection, sql.toString(), params.toArray()) == 0) {
+                insertStale(connection, teamId, sql.toString(), params.toArray());
+            }
+        }
+
+        private static void insertStale(Connection connection, Long teamId, String update, Object[] params) throws SQLException {
+            try {
+                execute(connection, "insert into team_stats (team_id, member_count, age_sum, min_age, max_age, stale)"
+                        + " values (?, 0, 0, null, null, true)", teamId);
+            } catch (SQLIntegrityConstraintViolationException e) {
+                // 그 사이 다른 트랜잭션이 만들었다 (mysql 은 이 statement 만 롤백) -> 그 행에 더한다
+                execute(connection, update, params);
+            }
+        }
+
+        private static int execute(Connection connection, String sql, Object... params) throws SQLException {
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                for (int i = 0; i < params.length; i++) {
+                    ps.setObject(i + 1, params[i]);
+                }
+                return ps.executeUpdate();
+            }
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.shlee.querydsl.repository;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.shlee.querydsl.dto.TeamStatsDTO;
+import com.shlee.querydsl.entity.TeamStats;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static com.shlee.querydsl.entity.QMember.member;
+import static com.shlee.querydsl.entity.QTeam.team;
+import static com.shlee.querydsl.entity.QTeamStats.teamStats;
+
+/**
+ * team_stats 조회 (team 마다 행 하나, group by 없음)
+ * stale 이거나 아직 행이 없는 team 만 member 에서 다시 계산해서 저장한다.
+ */
+@Repository
+@Transactional(readOnly = true)
+public class TeamStatsRepository {
+
+    private final EntityManager em;
+    private final JPAQueryFactory queryFactory;
+    private final TransactionTemplate repairTx;
+
+    public TeamStatsRepository(EntityManager em, JPAQueryFactory queryFactory, PlatformTransactionManager transactionManager) {
+        this.em = em;
+        this.queryFactory = queryFactory;
+        this.repairTx = new TransactionTemplate(transactionManager);
+        repairTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public List<TeamStatsDTO> findAll() {
+        return toDTOs(queryFactory
+                .select(team.id, team.name, teamStats)
+                .from(team)
+                .leftJoin(teamStats).on(teamStats.teamId.eq(team.id))
+                .orderBy(team.id.asc())
+                .fetch());
+    }
+
+    public Optional<TeamStatsDTO> findByTeamId(Long teamId) {
+        return toDTOs(queryFactory
+                .select(team.id, team.name, teamStats)
+                .from(team)
+                .leftJoin(teamStats).on(teamStats.teamId.eq(team.id))
+                .where(team.id.eq(teamId))
+                .fetch())
+                .stream()
+                .findFirst();
+    }
+
+    private List<TeamStatsDTO> toDTOs(List<Tuple> rows) {
+        List<Long> staleTeamIds = rows.stream()
+                .filter(row -> row.get(teamStats) == null || row.get(teamStats).isStale())
+                .map(row -> row.get(team.id))
+                .collect(Collectors.toList());
+        Map<Long, TeamStats> repaired = staleTeamIds.isEmpty() ? Collections.emptyMap() : repairOrRetry(staleTeamIds);
+
+        List<TeamStatsDTO> result = new ArrayList<>(rows.size());
+        for (Tuple row : rows) {
+            TeamStats stats = repaired.getOrDefault(row.get(team.id), row.get(teamStats));
+            result.add(new TeamStatsDTO(row.get(team.id), row.get(team.name),
+                    stats.getMemberCount(), stats.getAgeSum(), stats.getMinAge(), stats.getMaxAge()));
+        }
+        return result;
+    }
+
+    private Map<Long, TeamStats> repairOrRetry(List<Long> teamIds) {
+        try {
+            createMissing(teamIds);
+        } catch (DataIntegrityViolationException e) {
+            // 다른 요청이나 member 변경이 그 사이 행을 만들었다 -> 남은 행만 다시
+            createMissing(teamIds);
+        }
+        return repair(teamIds);
+    }
+
+    // 행이 없는 team 은 stale 행부터 만들어 따로 커밋한다 -> 다시 계산하는 동안 커밋되는 member 변경의 증분이 이 행에 더해진다
+    private void createMissing(List<Long> teamIds) {
+        repairTx.executeWithoutResult(status -> {
+            List<Long> existing = queryFactory
+                    .select(teamStats.teamId)
+                    .from(teamStats)
+                    .where(teamStats.teamId.in(teamIds))
+                    .fetch();
+            teamIds.stream()
+                    .filter(teamId -> !existing.contains(teamId))
+                    .forEach(teamId -> em.persist(new TeamStats(teamId)));
+        });
+    }
+
+    // team_stats 행을 잠그고 다시 계산 -> 그 사이 커밋되는 member 변경의 증분은 잠금이 풀린 뒤 이 값 위에 더해진다
+    // 벌크 연산 뒤처럼 여러 team 이 stale 이어도 group by 한 번
+    private Map<Long, TeamStats> repair(List<Long> teamIds) {
+        return repairTx.execute(status -> {
+            Map<Long, TeamStats> stats = new LinkedHashMap<>();
+            queryFactory
+                    .selectFrom(teamStats)
+                    .where(teamStats.teamId.in(teamIds))
+                    .orderBy(teamStats.teamId.asc())
+                    .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                    .fetch()
+                    .forEach(s -> stats.put(s.getTeamId(), s));
+            // 그 사이 team 이 삭제되어 행도 지워졌으면 저장하지 않고 계산한 값만 돌려준다
+            teamIds.forEach(teamId -> stats.computeIfAbsent(teamId, TeamStats::new));
+
+            List<Tuple> aggregates = queryFactory
+                    .select(member.team.id, member.count(), member.age.sum(), member.age.min(), member.age.max())
+                    .from(member)
+                    .where(member.team.id.in(teamIds))
+                    .groupBy(member.team.id)
+                    .fetch();
+            for (Tuple aggregate : aggregates) {
+                // sum(int) 는 hibernate 에서 Long
+                Number ageSum = aggregate.get(2, Number.class);
+                stats.get(aggregate.get(member.team.id)).recalculated(aggregate.get(member.count()),
+                        ageSum.longValue(), aggregate.get(member.age.min()), aggregate.get(member.age.max()));
+            }
+            // member 가 없는 team
+            stats.values().stream()
+                    .filter(TeamStats::isStale)
+                    .forEach(s -> s.recalculated(0, 0, null, null));
+            return stats;
+        });
+    }
+}
@@ -0,0 +1,16 @@
+package com.shlee.querydsl.repository;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import java.util.Collection;
+
+// 인덱스가 없는 컬럼 정렬 요청 -> 400
+// IllegalArgumentException 이면 repository 프록시가 InvalidDataAccessApiUsageException(500)으로 바꿔 버린다
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class UnsupportedSortException extends RuntimeException {
+
+    public UnsupportedSortException(String property, Collection<String> sortable) {
+        super("unsupported sort property '" + property + "' (sortable: " + sortable + ")");
+    }
+}
@@ -22,6 +22,7 @@ import com.shlee.querydsl.entity.QTeam;
 import com.shlee.querydsl.entity.Team;
 ;
 import org.assertj.core.api.Assertions;
+import org.hibernate.Hibernate;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -377,7 +378,8 @@ public class QuerydslBasicTest {
                 .where(member.username.eq("member1"))
                 .fetchOne();
 
-        boolean loaded = emf.getPersistenceUnitUtil().isLoaded(findMember.getTeam());
+        // 바이트코드 향상 후에는 isLoaded 가 아직 안 읽은 team.members 까지 보므로 team 자체의 로딩만 확인
+        boolean loaded = Hibernate.isInitialized(findMember.getTeam());
         assertThat(loaded).as("패치 조인 미적용").isTrue();
 
     }
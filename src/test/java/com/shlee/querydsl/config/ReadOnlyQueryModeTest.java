@@ -0,0 +1,150 @@
+package com.shlee.querydsl.config;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.shlee.querydsl.entity.Member;
+import com.shlee.querydsl.repository.MemberJpaRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static com.shlee.querydsl.entity.QMember.member;
+import static org.assertj.core.api.Assertions.assertThat;
+
+// REQUIRES_NEW 트랜잭션에서도 읽어야 하므로 커밋된 데이터로 확인
+@SpringBootTest
+class ReadOnlyQueryModeTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    JPAQueryFactory queryFactory;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    ReadOnlyScope readOnlyScope;
+
+    TransactionTemplate tx;
+    TransactionTemplate requiresNewTx;
+    Statistics statistics;
+
+    @BeforeEach
+    public void before() {
+        tx = new TransactionTemplate(transactionManager);
+        requiresNewTx = new TransactionTemplate(transactionManager);
+        requiresNewTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        tx.executeWithoutResult(status -> {
+            for (int i = 0; i < 3; i++) {
+                em.persist(new Member("readonly" + i, 10));
+            }
+        });
+        statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @AfterEach
+    public void after() {
+        tx.executeWithoutResult(status -> em.createQuery("delete from Member m where m.username like 'readonly%'")
+                .executeUpdate());
+    }
+
+    @Test
+    public void writeTransaction() {
+        long updates = statistics.getEntityUpdateCount();
+        tx.executeWithoutResult(status -> {
+            List<Member> members = fetchAll();
+
+            assertThat(members).noneMatch(this::readOnly);
+            members.get(0).setAge(11);
+        });
+        assertThat(statistics.getEntityUpdateCount()).isEqualTo(updates + 1);
+    }
+
+    // 쓰기 트랜잭션 안에서도 @ReadOnlyQueries 메서드가 읽은 엔티티는 바꿔도 update 되지 않는다 (스냅샷도 없다)
+    @Test
+    public void annotatedMethodInWriteTransaction() {
+        long updates = statistics.getEntityUpdateCount();
+        tx.executeWithoutResult(status -> {
+            // flush 는 그대로 -> 아직 flush 하지 않은 member 도 조회된다
+            em.persist(new Member("readonly3", 10));
+            assertThat(memberJpaRepository.findByUsername_Querydsl("readonly3")).hasSize(1);
+
+            Member readOnly = memberJpaRepository.findByUsername_Querydsl("readonly0").get(0);
+            Member managed = queryFactory.selectFrom(member).where(member.username.eq("readonly1")).fetchOne();
+            assertThat(readOnly(readOnly)).isTrue();
+            assertThat(loadedState(readOnly)).isNull();
+            assertThat(readOnly(managed)).isFalse();
+
+            readOnly.setAge(20);
+            managed.setAge(20);
+        });
+        assertThat(statistics.getEntityUpdateCount()).isEqualTo(updates + 1);
+
+        List<Member> committed = tx.execute(status -> fetchAll());
+        assertThat(committed)
+                .extracting("age")
+                .containsExactly(10, 20, 10, 10);
+    }
+
+    // @ReadOnlyQueries 안에서 새로 연 트랜잭션(REQUIRES_NEW)의 조회는 그대로
+    @Test
+    public void requiresNewInsideAnnotatedMethod() {
+        long updates = statistics.getEntityUpdateCount();
+        tx.executeWithoutResult(status -> readOnlyScope.run(() -> requiresNewTx.executeWithoutResult(inner -> {
+            Member managed = queryFactory.selectFrom(member).where(member.username.eq("readonly0")).fetchOne();
+            assertThat(readOnly(managed)).isFalse();
+            managed.setAge(30);
+        })));
+        assertThat(statistics.getEntityUpdateCount()).isEqualTo(updates + 1);
+    }
+
+    private List<Member> fetchAll() {
+        return queryFactory
+                .selectFrom(member)
+                .where(member.username.startsWith("readonly"))
+                .orderBy(member.username.asc())
+                .fetch();
+    }
+
+    private boolean readOnly(Member m) {
+        return em.unwrap(SessionImplementor.class).isReadOnly(m);
+    }
+
+    private Object[] loadedState(Member m) {
+        return em.unwrap(SessionImplementor.class).getPersistenceContext().getEntry(m).getLoadedState();
+    }
+
+    @TestConfiguration
+    static class Config {
+
+        @Bean
+        ReadOnlyScope readOnlyScope() {
+            return new ReadOnlyScope();
+        }
+    }
+
+    static class ReadOnlyScope {
+
+        @ReadOnlyQueries
+        public void run(Runnable runnable) {
+            runnable.run();
+        }
+    }
+}
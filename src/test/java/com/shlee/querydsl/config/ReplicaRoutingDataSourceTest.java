@@ -0,0 +1,116 @@
+package com.shlee.querydsl.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// 내장 H2 두 개를 primary / replica 로 두고 어느 쪽에서 읽었는지 확인
+class ReplicaRoutingDataSourceTest {
+
+    ReplicaRoutingDataSource routing;
+    JdbcTemplate jdbcTemplate;
+    TransactionTemplate writeTx;
+    TransactionTemplate readOnlyTx;
+
+    @BeforeEach
+    public void before() {
+        DriverManagerDataSource primary = h2("routing_primary");
+        DriverManagerDataSource replica = h2("routing_replica");
+        routing = new ReplicaRoutingDataSource(primary, Collections.singletonList(replica),
+                Duration.ofMillis(300), Duration.ofHours(1));
+
+        jdbcTemplate = new JdbcTemplate(routing);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(routing);
+        writeTx = new TransactionTemplate(transactionManager);
+        readOnlyTx = new TransactionTemplate(transactionManager);
+        readOnlyTx.setReadOnly(true);
+    }
+
+    @AfterEach
+    public void after() {
+        routing.close();
+    }
+
+    @Test
+    public void readOnlyGoesToReplica() {
+        assertThat(read(readOnlyTx)).isEqualTo("routing_replica");
+        assertThat(read(writeTx)).isEqualTo("routing_primary");
+        // 트랜잭션 밖도 primary
+        assertThat(whoAmI()).isEqualTo("routing_primary");
+    }
+
+    @Test
+    public void roundRobinSkipsUnhealthyReplica() {
+        routing.close();
+        routing = new ReplicaRoutingDataSource(h2("routing_primary"),
+                Arrays.asList(h2("routing_replica"), h2("routing_replica2")), Duration.ZERO, Duration.ofHours(1));
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(routing);
+        readOnlyTx = new TransactionTemplate(transactionManager);
+        readOnlyTx.setReadOnly(true);
+        jdbcTemplate = new JdbcTemplate(routing);
+
+        assertThat(Arrays.asList(read(readOnlyTx), read(readOnlyTx)))
+                .containsExactlyInAnyOrder("routing_replica", "routing_replica2");
+
+        routing.markDown("replica-0");
+        assertThat(read(readOnlyTx)).isEqualTo("routing_replica2");
+        routing.markDown("replica-1");
+        assertThat(read(readOnlyTx)).isEqualTo("routing_primary");
+
+        // health check 가 다시 살린다
+        routing.checkHealth();
+        assertThat(read(readOnlyTx)).startsWith("routing_replica");
+    }
+
+    @Test
+    public void replicaConnectionFailureFallsBackToPrimary() {
+        routing.close();
+        DriverManagerDataSource broken = new DriverManagerDataSource("jdbc:h2:mem:broken;IFEXISTS=TRUE", "sa", "");
+        routing = new ReplicaRoutingDataSource(h2("routing_primary"), Collections.singletonList(broken),
+                Duration.ZERO, Duration.ofHours(1));
+        readOnlyTx = new TransactionTemplate(new DataSourceTransactionManager(routing));
+        readOnlyTx.setReadOnly(true);
+        jdbcTemplate = new JdbcTemplate(routing);
+
+        assertThat(read(readOnlyTx)).isEqualTo("routing_primary");
+        routing.checkHealth();
+        assertThat(read(readOnlyTx)).isEqualTo("routing_primary");
+    }
+
+    @Test
+    public void readYourWritesWindow() throws InterruptedException {
+        routing.recordWrite();
+        assertThat(read(readOnlyTx)).isEqualTo("routing_primary");
+
+        Thread.sleep(400);
+        assertThat(read(readOnlyTx)).isEqualTo("routing_replica");
+    }
+
+    private String read(TransactionTemplate tx) {
+        return tx.execute(status -> whoAmI());
+    }
+
+    private String whoAmI() {
+        return jdbcTemplate.queryForObject("select name from whoami", String.class);
+    }
+
+    private static DriverManagerDataSource h2(String name) {
+        DriverManagerDataSource dataSource =
+                new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("create table if not exists whoami (name varchar(50))");
+        jdbc.update("delete from whoami");
+        jdbc.update("insert into whoami values (?)", name);
+        return dataSource;
+    }
+}
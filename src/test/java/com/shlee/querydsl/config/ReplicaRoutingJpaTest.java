@@ -0,0 +1,73 @@
+package com.shlee.querydsl.config;
+
+import com.shlee.querydsl.entity.Member;
+import com.shlee.querydsl.repository.MemberJpaRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// JpaTransactionManager + @Transactional repository 를 거쳐도 readOnly 는 replica, 쓰기는 primary 인지
+// 내장 H2 두 개 (replica 는 primary 의 스키마만 복사, 데이터는 따로)
+@SpringBootTest(properties = {
+        "spring.datasource.url=" + ReplicaRoutingJpaTest.PRIMARY_URL,
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "datasource-routing.enabled=true",
+        "datasource-routing.read-your-writes-window=0s", // 쓰기 직후 읽기도 replica 로
+        "datasource-routing.replicas[0].url=" + ReplicaRoutingJpaTest.REPLICA_URL,
+        "datasource-routing.replicas[0].username=sa",
+        "datasource-routing.replicas[0].password=",
+        "datasource-routing.replicas[0].driver-class-name=org.h2.Driver"
+})
+class ReplicaRoutingJpaTest {
+
+    static final String PRIMARY_URL = "jdbc:h2:mem:jpa_routing_primary;DB_CLOSE_DELAY=-1";
+    static final String REPLICA_URL = "jdbc:h2:mem:jpa_routing_replica;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    JdbcTemplate primary;
+    JdbcTemplate replica;
+
+    @BeforeEach
+    public void before() {
+        primary = new JdbcTemplate(new DriverManagerDataSource(PRIMARY_URL, "sa", ""));
+        replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+        replica.execute("drop all objects");
+        for (String statement : primary.queryForList("script nodata", String.class)) {
+            replica.execute(statement);
+        }
+        replica.update("insert into member (member_id, username, age) values (?, ?, ?)", 1_000_000L, "replicaOnly", 10);
+    }
+
+    @Test
+    public void readOnlyRepositoryCallGoesToReplica() {
+        assertThat(transactionManager).isInstanceOf(JpaTransactionManager.class);
+
+        // MemberJpaRepository 는 클래스에 @Transactional(readOnly = true)
+        assertThat(memberJpaRepository.findByUsername("replicaOnly")).hasSize(1);
+
+        // save 는 @Transactional (readOnly 아님)
+        memberJpaRepository.save(new Member("primaryOnly", 20));
+        assertThat(count(primary, "primaryOnly")).isEqualTo(1);
+        assertThat(count(replica, "primaryOnly")).isZero();
+        assertThat(memberJpaRepository.findByUsername("primaryOnly")).isEmpty();
+    }
+
+    private static int count(JdbcTemplate jdbc, String username) {
+        return jdbc.queryForObject("select count(*) from member where username = ?", Integer.class, username);
+    }
+}
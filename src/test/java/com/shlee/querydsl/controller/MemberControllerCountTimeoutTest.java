@@ -0,0 +1,88 @@
+package com.shlee.querydsl.controller;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.shlee.querydsl.entity.Member;
+import com.shlee.querydsl.entity.Team;
+import com.shlee.querydsl.repository.MemberPageCounter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.OptionalLong;
+import java.util.concurrent.CompletableFuture;
+
+import static com.shlee.querydsl.entity.QMember.member;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// /v5/members 의 count 가 시간 안에 끝나지 않은 경우 (MemberPageCounter.await 가 empty)
+@SpringBootTest
+@AutoConfigureMockMvc
+class MemberControllerCountTimeoutTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @MockBean
+    MemberPageCounter pageCounter;
+
+    TransactionTemplate tx;
+    Long teamId;
+
+    @BeforeEach
+    public void before() {
+        tx = new TransactionTemplate(transactionManager);
+        teamId = tx.execute(status -> {
+            Team team = new Team("teamTimeout");
+            em.persist(team);
+            for (int i = 0; i < 4; i++) {
+                em.persist(new Member("member" + i, 10 * i, team));
+            }
+            return team.getId();
+        });
+        given(pageCounter.start(any())).willReturn(new CompletableFuture<>());
+        given(pageCounter.await(any(), any())).willReturn(OptionalLong.empty());
+    }
+
+    @AfterEach
+    public void after() {
+        tx.executeWithoutResult(status -> new JPAQueryFactory(em)
+                .delete(member)
+                .where(member.team.id.eq(teamId))
+                .execute());
+        tx.executeWithoutResult(status -> em.remove(em.find(Team.class, teamId)));
+    }
+
+    @Test
+    public void unknownTotalIsMarkedAndNotCached() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            // content 는 그대로, total 은 "다음 페이지가 있다"는 하한값 (실제 4)
+            mockMvc.perform(get("/v5/members").param("teamName", "teamTimeout").param("size", "2"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.content.length()").value(2))
+                    .andExpect(jsonPath("$.totalElements").value(3))
+                    .andExpect(jsonPath("$.totalExact").value(false));
+        }
+        // 캐시되지 않았으므로 두 번째 요청도 count 를 다시 기다린다
+        verify(pageCounter, times(2)).await(any(), any());
+    }
+}
@@ -0,0 +1,20 @@
+package com.shlee.querydsl.entity;
+
+import org.hibernate.engine.spi.PersistentAttributeInterceptable;
+import org.hibernate.engine.spi.SelfDirtinessTracker;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * build.gradle 의 hibernate { enhance { ... } } 로 바이트코드 향상된 엔티티 확인
+ * flush 비용 향상 전/후 비교는 FlushBenchmark (src/jmh)
+ */
+public class EntityEnhancementTest {
+
+    @Test
+    public void enhanced() {
+        assertThat(SelfDirtinessTracker.class).isAssignableFrom(Member.class).isAssignableFrom(Team.class);
+        assertThat(PersistentAttributeInterceptable.class).isAssignableFrom(Member.class);
+    }
+}
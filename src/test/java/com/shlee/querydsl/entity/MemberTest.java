@@ -1,6 +1,10 @@
 package com.shlee.querydsl.entity;
 
+import com.shlee.querydsl.monitoring.SqlScope;
+import com.shlee.querydsl.monitoring.SqlStatementCounter;
+import org.hibernate.Hibernate;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.annotation.Commit;
 import org.springframework.transaction.annotation.Transactional;
@@ -8,11 +12,16 @@ import org.springframework.transaction.annotation.Transactional;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
 @SpringBootTest
 @Transactional
 public class MemberTest {
     @PersistenceContext
     EntityManager em;
+    @Autowired
+    SqlStatementCounter counter;
     @Test
 
     public void testEntity() {
@@ -46,5 +55,42 @@ public class MemberTest {
         }
 
     }
-}
 
+    @Test
+    public void changeTeamWithoutLoadingMembers() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        Member member1 = new Member("member1", 10, teamA);
+        em.persist(member1);
+        for (int i = 0; i < 10; i++) {
+            em.persist(new Member("memberB" + i, i, teamB));
+        }
+        em.flush();
+        em.clear();
+
+        Member findMember = em.find(Member.class, member1.getId());
+        Team findTeamA = findMember.getTeam();
+        // 이전 team 의 컬렉션은 로딩되어 있으면 같이 뺀다
+        assertThat(findTeamA.getMembers()).containsExactly(findMember);
+        Team findTeamB = em.find(Team.class, teamB.getId());
+
+        try (SqlScope scope = counter.open("changeTeam")) {
+            findMember.changeTeam(findTeamB);
+            assertThat(scope.getStatementCount()).isZero();
+        }
+        assertThat(Hibernate.isInitialized(findTeamB.getMembers())).isFalse();
+        assertThat(findTeamA.getMembers()).isEmpty();
+
+        // extra lazy: size() 는 (flush 후) count 쿼리 한 번, 컬렉션은 여전히 로딩 전
+        try (SqlScope scope = counter.open("extraLazySize")) {
+            assertThat(findTeamB.getMembers().size()).isEqualTo(11);
+            assertThat(scope.getStatementCount()).isEqualTo(2); // update member + count
+        }
+        assertThat(Hibernate.isInitialized(findTeamB.getMembers())).isFalse();
+
+        // 나중에 로딩돼도 옮긴 member 가 한 번만 들어 있다
+        assertThat(findTeamB.getMembers()).filteredOn(m -> m == findMember).hasSize(1);
+    }
+}
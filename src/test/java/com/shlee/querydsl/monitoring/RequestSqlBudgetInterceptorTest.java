@@ -0,0 +1,71 @@
+package com.shlee.querydsl.monitoring;
+
+import com.shlee.querydsl.repository.MemberJpaRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// 요청 하나에 statement 1개까지 (repository 메서드 하나는 예산 안)
+@SpringBootTest(properties = "sql-budget.max-statements=1")
+@AutoConfigureMockMvc
+@Import(RequestSqlBudgetInterceptorTest.BudgetController.class)
+class RequestSqlBudgetInterceptorTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    SqlStatementCounter counter;
+
+    @Test
+    public void overBudgetRequestFails() throws Exception {
+        mockMvc.perform(get("/test/sql-budget"))
+                .andExpect(status().isInternalServerError());
+
+        assertThat(counter.violationCounts()).containsEntry("GET /test/sql-budget", 1L);
+        assertThat(counter.violationCounts()).doesNotContainKey("MemberJpaRepository.findByUsername(..)");
+    }
+
+    @Test
+    public void asyncExportIsCounted() throws Exception {
+        long before = counter.statementCounts().getOrDefault("GET /members/export", 0L);
+
+        MvcResult result = mockMvc.perform(get("/members/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk());
+
+        // 작업 스레드에서 실행한 select 도 요청 scope 에 잡힌다
+        assertThat(counter.statementCounts().get("GET /members/export")).isGreaterThan(before);
+    }
+
+    @RestController
+    static class BudgetController {
+
+        private final MemberJpaRepository memberJpaRepository;
+
+        BudgetController(MemberJpaRepository memberJpaRepository) {
+            this.memberJpaRepository = memberJpaRepository;
+        }
+
+        @GetMapping("/test/sql-budget")
+        public int overBudget() {
+            memberJpaRepository.findByUsername("budget1");
+            memberJpaRepository.findByUsername("budget2");
+            return memberJpaRepository.findByUsername("budget3").size();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.shlee.querydsl.monitoring;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.shlee.querydsl.entity.Member;
+import com.shlee.querydsl.entity.Team;
+import com.shlee.querydsl.repository.MemberJpaRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static com.shlee.querydsl.entity.QMember.member;
+import static com.shlee.querydsl.entity.QTeam.team;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@Transactional
+class SqlStatementCounterTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    SqlStatementCounter counter;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    JPAQueryFactory queryFactory;
+
+    @BeforeEach
+    public void before() {
+        queryFactory = new JPAQueryFactory(em);
+        for (int i = 0; i < 7; i++) {
+            Team t = new Team("budgetTeam" + i);
+            em.persist(t);
+            em.persist(new Member("budget" + i, 20 + i, t));
+        }
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    public void detectNPlusOne() {
+        List<Long> teamIds = queryFactory
+                .select(team.id)
+                .from(team)
+                .where(team.name.startsWith("budgetTeam"))
+                .fetch();
+
+        SqlScope scope = counter.open("detectNPlusOne");
+        // id 하나씩 조회 -> 같은 모양 select 7번
+        for (Long teamId : teamIds) {
+            em.find(Team.class, teamId);
+        }
+
+        assertThat(scope.getStatementCount()).isEqualTo(7);
+        assertThat(scope.getRepeatedStatements(5)).hasSize(1).containsValue(7);
+        assertThatThrownBy(scope::close).isInstanceOf(SqlBudgetExceededException.class);
+        assertThat(counter.violationCounts()).containsKey("detectNPlusOne");
+    }
+
+    @Test
+    public void lazyLoadingBatchFetch() {
+        try (SqlScope scope = counter.open("lazyLoadingBatchFetch")) {
+            List<Member> members = queryFactory
+                    .selectFrom(member)
+                    .where(member.username.startsWith("budget"))
+                    .fetch();
+            // default_batch_fetch_size 로 지연 로딩된 team 7개를 IN 쿼리 한 번에 초기화
+            for (Member m : members) {
+                m.getTeam().getName();
+            }
+
+            assertThat(scope.getStatementCount()).isEqualTo(2);
+            assertThat(scope.getRepeatedStatements(5)).isEmpty();
+        }
+    }
+
+    @Test
+    public void fetchJoinWithinBudget() {
+        try (SqlScope scope = counter.open("fetchJoinWithinBudget")) {
+            List<Member> members = queryFactory
+                    .selectFrom(member)
+                    .join(member.team, team).fetchJoin()
+                    .where(member.username.startsWith("budget"))
+                    .fetch();
+            for (Member m : members) {
+                m.getTeam().getName();
+            }
+
+            assertThat(members).hasSize(7);
+            assertThat(scope.getStatementCount()).isEqualTo(1);
+            assertThat(scope.getRepeatedStatements(5)).isEmpty();
+        }
+        assertThat(counter.violationCounts()).doesNotContainKey("fetchJoinWithinBudget");
+    }
+
+    @Test
+    public void repositoryMethodScope() {
+        try (SqlScope scope = counter.open("repositoryMethodScope")) {
+            memberJpaRepository.findByUsername_Querydsl("budget0");
+            // 안쪽 repository scope 의 statement 도 바깥 scope 에 같이 잡힌다
+            assertThat(scope.getStatementCount()).isEqualTo(1);
+        }
+        assertThat(counter.statementCounts()).containsKey("MemberJpaRepository.findByUsername_Querydsl(..)");
+    }
+}
@@ -0,0 +1,113 @@
+package com.shlee.querydsl.repository;
+
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.ExpressionUtils;
+import com.querydsl.core.types.Projections;
+import com.querydsl.jpa.JPAExpressions;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.shlee.querydsl.dto.MemberDTO;
+import com.shlee.querydsl.dto.MemberTeamDTO;
+import com.shlee.querydsl.dto.UserDTO;
+import com.shlee.querydsl.entity.Member;
+import com.shlee.querydsl.entity.QMember;
+import com.shlee.querydsl.entity.Team;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static com.shlee.querydsl.entity.QMember.member;
+import static com.shlee.querydsl.entity.QTeam.team;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@Transactional
+class FastProjectionsTest {
+
+    @Autowired
+    EntityManager em;
+
+    JPAQueryFactory queryFactory;
+
+    @BeforeEach
+    public void before() {
+        queryFactory = new JPAQueryFactory(em);
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, null));
+    }
+
+    @Test
+    public void sameResultAsProjections() {
+        assertThat(fetch(FastProjections.bean(MemberDTO.class, member.username, member.age)))
+                .isEqualTo(fetch(Projections.bean(MemberDTO.class, member.username, member.age)));
+        assertThat(fetch(FastProjections.fields(MemberDTO.class, member.username, member.age)))
+                .isEqualTo(fetch(Projections.fields(MemberDTO.class, member.username, member.age)));
+        assertThat(fetch(FastProjections.constructor(MemberDTO.class, member.username, member.age)))
+                .isEqualTo(fetch(Projections.constructor(MemberDTO.class, member.username, member.age)))
+                .extracting("username")
+                .containsExactly("member1", "member2", "member3");
+    }
+
+    @Test
+    public void alias() {
+        QMember memberSub = new QMember("memberSub");
+
+        List<UserDTO> result = fetch(FastProjections.fields(UserDTO.class,
+                member.username.as("name"),
+                ExpressionUtils.as(JPAExpressions
+                        .select(memberSub.age.max())
+                        .from(memberSub), "age")));
+
+        assertThat(result).extracting("name").containsExactly("member1", "member2", "member3");
+        assertThat(result).extracting("age").containsOnly(30);
+    }
+
+    // left join 으로 team 이 없는 member -> teamId/teamName 은 null
+    @Test
+    public void nullValues() {
+        List<MemberTeamDTO> beans = queryFactory
+                .select(FastProjections.bean(MemberTeamDTO.class,
+                        member.id.as("memberId"), member.username, member.age,
+                        team.id.as("teamId"), team.name.as("teamName")))
+                .from(member)
+                .leftJoin(member.team, team)
+                .orderBy(member.username.asc())
+                .fetch();
+        List<MemberTeamDTO> constructed = queryFactory
+                .select(FastProjections.constructor(MemberTeamDTO.class,
+                        member.id, member.username, member.age, team.id, team.name))
+                .from(member)
+                .leftJoin(member.team, team)
+                .orderBy(member.username.asc())
+                .fetch();
+
+        assertThat(beans).isEqualTo(constructed);
+        assertThat(beans.get(2).getTeamName()).isNull();
+        assertThat(beans.get(0).getTeamName()).isEqualTo("teamA");
+    }
+
+    @Test
+    public void unknownProperty() {
+        assertThatThrownBy(() -> FastProjections.fields(UserDTO.class, member.username, member.age))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("username");
+        assertThatThrownBy(() -> FastProjections.constructor(UserDTO.class, member.age, member.username))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private <T> List<T> fetch(Expression<T> projection) {
+        return queryFactory
+                .select(projection)
+                .from(member)
+                .orderBy(member.username.asc())
+                .fetch();
+    }
+}
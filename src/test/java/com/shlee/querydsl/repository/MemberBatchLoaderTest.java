@@ -0,0 +1,124 @@
+package com.shlee.querydsl.repository;
+
+import com.shlee.querydsl.entity.Member;
+import com.shlee.querydsl.monitoring.SqlScope;
+import com.shlee.querydsl.monitoring.SqlStatementCounter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// 트랜잭션 밖에서도 조회하므로 커밋된 데이터로 확인
+@SpringBootTest
+class MemberBatchLoaderTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    SqlStatementCounter counter;
+
+    TransactionTemplate tx;
+    List<Long> ids;
+
+    @BeforeEach
+    public void before() {
+        tx = new TransactionTemplate(transactionManager);
+        ids = tx.execute(status -> {
+            List<Long> saved = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                Member m = new Member("loader" + i, i);
+                em.persist(m);
+                saved.add(m.getId());
+            }
+            return saved;
+        });
+        // 커밋하면서 2차 캐시에 들어간 member 를 비운다 -> 첫 조회는 DB 로
+        em.getEntityManagerFactory().getCache().evict(Member.class);
+    }
+
+    @AfterEach
+    public void after() {
+        tx.executeWithoutResult(status -> em.createQuery("delete from Member m where m.id in :ids")
+                .setParameter("ids", ids)
+                .executeUpdate());
+    }
+
+    @Test
+    public void loadThenDispatch() {
+        MemberBatchLoader loader = new MemberBatchLoader(memberJpaRepository);
+
+        try (SqlScope scope = counter.open("loadThenDispatch")) {
+            CompletableFuture<Optional<Member>> first = loader.load(ids.get(0));
+            CompletableFuture<Optional<Member>> second = loader.load(ids.get(1));
+            CompletableFuture<Optional<Member>> missing = loader.load(-1L);
+            loader.dispatch();
+
+            assertThat(first.join().get().getUsername()).isEqualTo("loader0");
+            assertThat(second.join().get().getUsername()).isEqualTo("loader1");
+            assertThat(missing.join()).isEmpty();
+            assertThat(scope.getStatementCount()).isEqualTo(1);
+
+            // 요청 동안은 다시 조회하지 않는다
+            assertThat(loader.findById(ids.get(0)).get().getUsername()).isEqualTo("loader0");
+            assertThat(scope.getStatementCount()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    public void loadInLoopThenDispatch() {
+        MemberBatchLoader loader = new MemberBatchLoader(memberJpaRepository);
+
+        try (SqlScope scope = counter.open("loadInLoopThenDispatch")) {
+            List<CompletableFuture<Optional<Member>>> futures = new ArrayList<>();
+            for (Long id : ids) {
+                futures.add(loader.load(id));
+            }
+            assertThat(scope.getStatementCount()).isZero();
+            loader.dispatch();
+
+            // 8 번의 load 가 IN 쿼리 한 번으로
+            for (int i = 0; i < ids.size(); i++) {
+                assertThat(futures.get(i).join().get().getUsername()).isEqualTo("loader" + i);
+            }
+            assertThat(scope.getStatementCount()).isEqualTo(1);
+        }
+
+        // 다음 요청의 loader 는 2차 캐시에서 읽는다
+        MemberBatchLoader next = new MemberBatchLoader(memberJpaRepository);
+        try (SqlScope scope = counter.open("nextRequest")) {
+            List<CompletableFuture<Optional<Member>>> futures = next.loadMany(ids);
+            next.dispatch();
+            assertThat(futures).allMatch(future -> future.join().isPresent());
+            assertThat(scope.getStatementCount()).isZero();
+        }
+    }
+
+    @Test
+    public void managedWithinTransaction() {
+        MemberBatchLoader loader = new MemberBatchLoader(memberJpaRepository);
+        tx.executeWithoutResult(status -> {
+            // 호출 스레드의 트랜잭션에서 조회하므로 같은 영속성 컨텍스트의 엔티티
+            Member found = loader.findById(ids.get(2)).get();
+            assertThat(em.contains(found)).isTrue();
+            assertThat(loader.findById(ids.get(2)).get()).isSameAs(found);
+        });
+    }
+}
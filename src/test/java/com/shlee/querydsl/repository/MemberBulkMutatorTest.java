@@ -0,0 +1,160 @@
+package com.shlee.querydsl.repository;
+
+import com.shlee.querydsl.dto.BulkMutationResultDTO;
+import com.shlee.querydsl.entity.Member;
+import com.shlee.querydsl.entity.Team;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.Cache;
+import javax.persistence.EntityManager;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.shlee.querydsl.entity.QMember.member;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// chunk 마다 커밋하므로 테스트 트랜잭션 없이 커밋된 데이터로 확인
+@SpringBootTest
+class MemberBulkMutatorTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberBulkMutator bulkMutator;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    TransactionTemplate tx;
+    Long teamId;
+    List<Long> memberIds;
+
+    @BeforeEach
+    public void before() {
+        tx = new TransactionTemplate(transactionManager);
+        // age 0, 10, ..., 60
+        memberIds = tx.execute(status -> {
+            Team team = new Team("bulkTeam");
+            em.persist(team);
+            List<Long> ids = new ArrayList<>();
+            for (int i = 0; i < 7; i++) {
+                Member m = new Member("member" + i, i * 10, team);
+                em.persist(m);
+                ids.add(m.getId());
+            }
+            teamId = team.getId();
+            return ids;
+        });
+    }
+
+    @AfterEach
+    public void after() {
+        tx.executeWithoutResult(status -> {
+            em.createQuery("delete from Member m where m.team.id = :teamId")
+                    .setParameter("teamId", teamId)
+                    .executeUpdate();
+            em.remove(em.find(Team.class, teamId));
+        });
+    }
+
+    @Test
+    public void updateInChunks() {
+        Cache cache = em.getEntityManagerFactory().getCache();
+        Long affectedId = memberIds.get(1);
+        Long untouchedId = memberIds.get(5);
+        tx.executeWithoutResult(status -> {
+            em.find(Member.class, affectedId);
+            em.find(Member.class, untouchedId);
+        });
+        assertThat(cache.contains(Member.class, untouchedId)).isTrue();
+
+        List<BulkMutationResultDTO.Chunk> progress = new ArrayList<>();
+        TransactionTemplate readOnlyTx = new TransactionTemplate(transactionManager);
+        readOnlyTx.setReadOnly(true);
+        BulkMutationResultDTO result = readOnlyTx.execute(status -> {
+            Member loadedAffected = em.find(Member.class, affectedId);
+            Member loadedUntouched = em.find(Member.class, untouchedId);
+
+            BulkMutationResultDTO mutation = bulkMutator.update(
+                    member.team.id.eq(teamId).and(member.age.lt(28)),
+                    m -> m.setUsername("비회원"),
+                    2, Duration.ofMillis(1), progress::add);
+
+            // 바깥 영속성 컨텍스트에서는 바뀐 member 만 빠진다 (em.clear 없음)
+            assertThat(em.contains(loadedAffected)).isFalse();
+            assertThat(em.contains(loadedUntouched)).isTrue();
+            return mutation;
+        });
+
+        assertThat(result.getAffected()).isEqualTo(3);
+        assertThat(result.isCompleted()).isTrue();
+        assertThat(result.getChunks()).extracting("affected")
+                .containsExactlyElementsOf(rangeCounts(memberIds.subList(0, 3), 2));
+        assertThat(result.getChunks().get(0).getFromId()).isEqualTo(memberIds.get(0));
+        assertThat(result.getChunks()).allSatisfy(chunk -> assertThat(chunk.getToId() - chunk.getFromId()).isEqualTo(1));
+        assertThat(progress).isEqualTo(result.getChunks());
+
+        // 2차 캐시는 region 전체가 아니라 바뀐 member 만 갱신된다
+        assertThat(cache.contains(Member.class, untouchedId)).isTrue();
+        tx.executeWithoutResult(status -> {
+            assertThat(em.find(Member.class, affectedId).getUsername()).isEqualTo("비회원");
+            assertThat(em.find(Member.class, untouchedId).getUsername()).isEqualTo("member5");
+        });
+    }
+
+    @Test
+    public void deleteInChunks() {
+        BulkMutationResultDTO result = bulkMutator.delete(
+                member.team.id.eq(teamId).and(member.age.gt(18)), 2, Duration.ZERO, chunk -> { });
+
+        assertThat(result.getAffected()).isEqualTo(5);
+        assertThat(result.getChunks()).extracting("affected")
+                .containsExactlyElementsOf(rangeCounts(memberIds.subList(2, 7), 2));
+        Long remaining = tx.execute(status -> em
+                .createQuery("select count(m) from Member m where m.team.id = :teamId", Long.class)
+                .setParameter("teamId", teamId)
+                .getSingleResult());
+        assertThat(remaining).isEqualTo(2);
+    }
+
+    @Test
+    public void emptyRangesAreReported() {
+        // member0, member6 만 -> 그 사이 id 범위는 바꿀 member 가 없어도 chunk 로 나온다
+        List<Long> matched = Arrays.asList(memberIds.get(0), memberIds.get(6));
+        BulkMutationResultDTO result = bulkMutator.delete(
+                member.team.id.eq(teamId).and(member.age.in(0, 60)), 1, Duration.ZERO, chunk -> { });
+
+        assertThat(result.getAffected()).isEqualTo(2);
+        assertThat(result.getChunks()).hasSize((int) (matched.get(1) - matched.get(0) + 1));
+        assertThat(result.getChunks()).extracting("affected")
+                .containsExactlyElementsOf(rangeCounts(matched, 1))
+                .contains(0);
+    }
+
+    @Test
+    public void rejectsWriteTransaction() {
+        assertThatThrownBy(() -> tx.executeWithoutResult(status ->
+                bulkMutator.delete(member.team.id.eq(teamId))))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    // 조건에 맞는 id 의 min 부터 chunkSize 폭으로 나눈 범위별 개수 (pooled-lo 라 id 가 연속이 아닐 수 있다)
+    private static List<Integer> rangeCounts(List<Long> matched, int chunkSize) {
+        List<Integer> counts = new ArrayList<>();
+        for (long from = matched.get(0); from <= matched.get(matched.size() - 1); from += chunkSize) {
+            long lo = from;
+            counts.add((int) matched.stream().filter(id -> id >= lo && id < lo + chunkSize).count());
+        }
+        return counts;
+    }
+}
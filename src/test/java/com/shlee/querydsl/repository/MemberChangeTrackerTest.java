@@ -0,0 +1,40 @@
+package com.shlee.querydsl.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@RecordApplicationEvents
+class MemberChangeTrackerTest {
+
+    @Autowired
+    MemberChangeTracker tracker;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    ApplicationEvents events;
+
+    @Test
+    public void failedEntityActionDoesNotHideLaterBulkDml() {
+        // insert 액션이 pre 이벤트 뒤에 실패해서 post 이벤트가 오지 않은 트랜잭션
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        assertThatThrownBy(() -> tx.executeWithoutResult(status -> {
+            tracker.onPreInsert(null);
+            throw new IllegalStateException("insert failed");
+        })).isInstanceOf(IllegalStateException.class);
+
+        // 같은 스레드의 다음 벌크 DML 은 벌크로 보인다
+        tracker.inspect("update member set age = age + 1");
+        assertThat(events.stream(MemberDataChangedEvent.class).filter(MemberDataChangedEvent::isBulk)).hasSize(1);
+    }
+}
@@ -4,6 +4,8 @@ import com.shlee.querydsl.dto.MemberSearchCondition;
 import com.shlee.querydsl.dto.MemberTeamDTO;
 import com.shlee.querydsl.entity.Member;
 import com.shlee.querydsl.entity.Team;
+import com.shlee.querydsl.monitoring.SqlScope;
+import com.shlee.querydsl.monitoring.SqlStatementCounter;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -11,6 +13,8 @@ import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
@@ -25,6 +29,9 @@ class MemberJpaRepositoryTest {
     @Autowired
     MemberJpaRepository memberJpaRepository;
 
+    @Autowired
+    SqlStatementCounter counter;
+
     @Test
     public void basicTest() {
         Member member = new Member("member1", 10);
@@ -83,6 +90,74 @@ class MemberJpaRepositoryTest {
         assertThat(result).extracting("username").containsExactly("member4");
     }
 
+    // statement 수만 확인한다 (save 와의 처리량 비교는 src/jmh 의 SaveBenchmark)
+    @Test
+    public void saveAllBatchTest() {
+        int count = 2000;
+        Team team = new Team("teamA");
+        em.persist(team);
+        List<Member> members = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            members.add(new Member("batch" + i, i % 100, team));
+        }
+
+        try (SqlScope scope = counter.open("saveAll")) {
+            memberJpaRepository.saveAll(members);
+            // insert 는 batch_size(100) 건씩 executeBatch 한 번, id 는 pooled-lo 로 50 개에 한 번
+            // (mysql 은 시퀀스를 테이블로 흉내 내서 select for update + update 두 번)
+            assertThat(scope.getStatementCount()).isLessThanOrEqualTo(count / 100 + 2 * (count / 50 + 1));
+        }
+        // saveAll 의 clear 로 호출 전에 영속 상태였던 team 도 준영속
+        assertThat(em.contains(team)).isFalse();
+
+        Long saved = em.createQuery("select count(m) from Member m where m.username like 'batch%'", Long.class)
+                .getSingleResult();
+        assertThat(saved).isEqualTo(count);
+        assertThat(members).allMatch(m -> m.getId() != null);
+    }
 
+    @Test
+    public void findAllByIdsOrdered() {
+        Member member1 = new Member("member1", 10);
+        Member member2 = new Member("member2", 20);
+        Member member3 = new Member("member3", 30);
+        memberJpaRepository.save(member1);
+        memberJpaRepository.save(member2);
+        memberJpaRepository.save(member3);
+        em.flush();
+        em.clear();
+
+        // 호출한 순서대로, 없는 id 는 빠지고 중복은 그대로
+        try (SqlScope scope = counter.open("findAllByIdsOrdered")) {
+            List<Member> result = memberJpaRepository.findAllByIdsOrdered(
+                    Arrays.asList(member3.getId(), member1.getId(), -1L, member2.getId(), member1.getId()));
+            assertThat(result).extracting("username").containsExactly("member3", "member1", "member2", "member1");
+            assertThat(scope.getStatementCount()).isEqualTo(1);
+        }
+        assertThat(memberJpaRepository.findAllByIdsOrdered(new ArrayList<>())).isEmpty();
+    }
 
-}
\ No newline at end of file
+    @Test
+    public void findAllByIdsOrderedUsesPersistenceContext() {
+        Member member1 = new Member("member1", 10);
+        Member member2 = new Member("member2", 20);
+        memberJpaRepository.save(member1);
+        memberJpaRepository.save(member2);
+        em.flush();
+        em.clear();
+        Member managed = em.find(Member.class, member1.getId());
+
+        // 영속성 컨텍스트에 있는 member1 은 그대로, member2 만 조회
+        try (SqlScope scope = counter.open("findAllByIdsOrdered")) {
+            List<Member> result = memberJpaRepository.findAllByIdsOrdered(Arrays.asList(member2.getId(), member1.getId()));
+            assertThat(result).extracting("username").containsExactly("member2", "member1");
+            assertThat(result.get(1)).isSameAs(managed);
+            assertThat(scope.getStatementCount()).isEqualTo(1);
+        }
+        // 전부 영속 상태면 쿼리 없음
+        try (SqlScope scope = counter.open("findAllByIdsOrdered")) {
+            assertThat(memberJpaRepository.findAllByIdsOrdered(Arrays.asList(member1.getId(), member2.getId()))).hasSize(2);
+            assertThat(scope.getStatementCount()).isZero();
+        }
+    }
+}
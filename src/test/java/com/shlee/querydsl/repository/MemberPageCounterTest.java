@@ -0,0 +1,78 @@
+package com.shlee.querydsl.repository;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.shlee.querydsl.dto.MemberSearchCondition;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.OptionalLong;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// 풀 스레드 하나를 막아 두고 큐에서 기다리는 count / 실행 중인 count 가 시간을 넘길 때
+@SpringBootTest
+class MemberPageCounterTest {
+
+    @Autowired
+    JPAQueryFactory queryFactory;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    CountDownLatch blocked;
+    CountDownLatch release;
+    MemberPageCounter pageCounter;
+
+    @BeforeEach
+    public void before() {
+        blocked = new CountDownLatch(1);
+        release = new CountDownLatch(1);
+        // 첫 count 만 release 까지 멈춘다
+        MemberCountCache blockingFirst = new MemberCountCache(0, Duration.ofSeconds(1)) {
+            @Override
+            public long get(MemberSearchCondition condition, LongSupplier counter) {
+                if (blocked.getCount() > 0) {
+                    blocked.countDown();
+                    try {
+                        release.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return counter.getAsLong();
+            }
+        };
+        pageCounter = new MemberPageCounter(queryFactory, blockingFirst, transactionManager, 1, 10, Duration.ofMillis(200));
+    }
+
+    @AfterEach
+    public void after() {
+        release.countDown();
+        pageCounter.shutdown();
+    }
+
+    @Test
+    public void timedOutCountDoesNotFailPage() throws Exception {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        Future<Long> running = pageCounter.start(condition);
+        assertThat(blocked.await(5, TimeUnit.SECONDS)).isTrue();
+        Future<Long> queued = pageCounter.start(condition);
+
+        // 큐에서 기다리던 count -> 호출 스레드에서 센다
+        OptionalLong counted = pageCounter.await(queued, condition);
+        assertThat(counted).isPresent();
+        assertThat(queued.isCancelled()).isTrue();
+
+        // 실행 중인 count -> 다시 세지 않고 total 을 모른다고 돌려준다
+        assertThat(pageCounter.await(running, condition)).isEmpty();
+    }
+}
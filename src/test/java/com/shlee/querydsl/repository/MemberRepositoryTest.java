@@ -1,20 +1,47 @@
 package com.shlee.querydsl.repository;
 
+import com.querydsl.jpa.JPAExpressions;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.shlee.querydsl.dto.CursorPageDTO;
+import com.shlee.querydsl.dto.EstimatedPageDTO;
 import com.shlee.querydsl.dto.MemberSearchCondition;
 import com.shlee.querydsl.dto.MemberTeamDTO;
+import com.shlee.querydsl.dto.QMemberTeamDTO;
 import com.shlee.querydsl.entity.Member;
+import com.shlee.querydsl.entity.QMember;
 import com.shlee.querydsl.entity.Team;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import javax.persistence.EntityManager;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import static com.shlee.querydsl.entity.QMember.member;
+import static com.shlee.querydsl.entity.QTeam.team;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 @SpringBootTest
 @Transactional
@@ -27,6 +54,18 @@ class MemberRepositoryTest {
     @Autowired
     MemberRepository memberRepository;
 
+    @Autowired
+    MemberCountCache countCache;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    MemberSearchShapeCache shapeCache;
+
+    @Autowired
+    MemberSearchResultCache resultCache;
+
 
 
     @Test
@@ -70,6 +109,10 @@ class MemberRepositoryTest {
         List<MemberTeamDTO> result = memberRepository.search(condition);
 
         assertThat(result).extracting("username").containsExactly("member4");
+
+        // 공백뿐인 문자열 조건은 searchByBuilder 처럼 무시
+        condition.setUsername(" ");
+        assertThat(memberRepository.search(condition)).extracting("username").containsExactly("member4");
     }
 
     @Test
@@ -98,5 +141,407 @@ class MemberRepositoryTest {
         assertThat(result.getContent()).extracting("username").containsExactly("member1","member2","member3");
     }
 
+    @Test
+    public void searchByCursor() {
+        Team teamC = new Team("teamC");
+        em.persist(teamC);
+
+        Member member1 = new Member("member1", 10, teamC);
+        Member member2 = new Member("member2", 20, teamC);
+        Member member3 = new Member("member3", 30, teamC);
+        Member member4 = new Member("member4", 40, teamC);
+        em.persist(member1);
+        em.persist(member2);
+        em.persist(member3);
+        em.persist(member4);
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamC");
+
+        CursorPageDTO<MemberTeamDTO> first = memberRepository.searchByCursor(condition, null, 3);
+        assertThat(first.getContent()).extracting("username").containsExactly("member1", "member2", "member3");
+        assertThat(first.isHasNext()).isTrue();
+
+        CursorPageDTO<MemberTeamDTO> second = memberRepository.searchByCursor(condition, first.getNextCursor(), 3);
+        assertThat(second.getContent()).extracting("username").containsExactly("member4");
+        assertThat(second.isHasNext()).isFalse();
+        assertThat(second.getNextCursor()).isNull();
+    }
+
+    @Test
+    public void searchQueryCountJoinPruning() {
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+
+        JPAQueryFactory queryFactory = new JPAQueryFactory(em);
+
+        MemberSearchCondition ageOnly = new MemberSearchCondition();
+        ageOnly.setAgeGoe(15);
+        JPAQuery<Long> ageOnlyCount = MemberSearchQuery.of(queryFactory, ageOnly).count();
+        assertThat(ageOnlyCount.toString()).doesNotContain("join");
+        assertThat(ageOnlyCount.toString()).contains("count(member1.id)");
+
+        MemberSearchCondition byTeam = new MemberSearchCondition();
+        byTeam.setTeamName("teamA");
+        JPAQuery<Long> teamCount = MemberSearchQuery.of(queryFactory, byTeam).count();
+        assertThat(teamCount.toString()).contains("inner join member1.team");
+        assertThat(teamCount.fetchOne()).isGreaterThanOrEqualTo(2L);
+    }
+
+    @Test
+    public void searchPageCountCache() {
+        Team teamD = new Team("teamD");
+        em.persist(teamD);
+        em.persist(new Member("member1", 10, teamD));
+        em.persist(new Member("member2", 20, teamD));
+        em.flush();
+        countCache.invalidateAll();
+        // 트랜잭션 안에서 member를 바꾸면 캐시를 건너뛰므로 커밋된 것처럼 표시를 지운다
+        TransactionSynchronizationManager.unbindResourceIfPossible(countCache);
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamD");
+        PageRequest pageRequest = PageRequest.of(0, 1);
+
+        CacheStats before = countCache.stats();
+        assertThat(memberRepository.searchPageSimple(condition, pageRequest).getTotalElements()).isEqualTo(2);
+        assertThat(memberRepository.searchPageComplex(condition, pageRequest).getTotalElements()).isEqualTo(2);
+        CacheStats stats = countCache.stats().minus(before);
+        assertThat(stats.missCount()).isEqualTo(1);
+        assertThat(stats.hitCount()).isEqualTo(1);
+
+        // save -> 무효화
+        memberRepository.save(new Member("member3", 30, teamD));
+        TransactionSynchronizationManager.unbindResourceIfPossible(countCache);
+        assertThat(countCache.get(condition, () -> 3L)).isEqualTo(3L);
+
+        // 벌크 delete -> 무효화
+        new JPAQueryFactory(em)
+                .delete(member)
+                .where(member.username.eq("member3"))
+                .execute();
+        TransactionSynchronizationManager.unbindResourceIfPossible(countCache);
+        assertThat(countCache.get(condition, () -> 2L)).isEqualTo(2L);
+        assertThat(memberRepository.searchPageSimple(condition, pageRequest).getTotalElements()).isEqualTo(2);
+
+        // 공백뿐인 username 은 조건 없음과 같은 쿼리 -> 같은 key (캐시된 2 를 그대로)
+        MemberSearchCondition blank = new MemberSearchCondition();
+        blank.setTeamName("teamD");
+        blank.setUsername(" ");
+        assertThat(countCache.get(blank, () -> -1L)).isEqualTo(2L);
+    }
+
+    @Test
+    public void searchStream() {
+        Team teamE = new Team("teamE");
+        em.persist(teamE);
+        for (int i = 0; i < 10; i++) {
+            em.persist(new Member("member" + i, i, teamE));
+        }
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamE");
+        condition.setAgeGoe(5);
+
+        try (Stream<MemberTeamDTO> stream = memberRepository.searchStream(condition)) {
+            List<String> usernames = stream.map(MemberTeamDTO::getUsername).collect(Collectors.toList());
+            assertThat(usernames).containsExactlyInAnyOrder("member5", "member6", "member7", "member8", "member9");
+        }
+        // 호출한 쪽이 읽어 둔 엔티티는 stream 이후에도 영속 상태
+        assertThat(em.contains(teamE)).isTrue();
+    }
+
+    @Test
+    public void searchShapeCache() {
+        Team teamF = new Team("teamF");
+        em.persist(teamF);
+        em.persist(new Member("member1", 10, teamF));
+        em.persist(new Member("member2", 20, teamF));
+        em.persist(new Member("member3", 30, teamF));
+
+        MemberSearchCondition first = new MemberSearchCondition();
+        first.setTeamName("teamF");
+        first.setAgeGoe(15);
+        memberRepository.search(first);
+
+        // 같은 모양(teamName + ageGoe), 다른 값 -> 템플릿 재사용
+        long hitsBefore = shapeCache.hitCount();
+        MemberSearchCondition second = new MemberSearchCondition();
+        second.setTeamName("teamF");
+        second.setAgeGoe(25);
+        List<MemberTeamDTO> result = memberRepository.search(second);
+
+        assertThat(shapeCache.hitCount()).isEqualTo(hitsBefore + 1);
+        assertThat(result).extracting("username").containsExactly("member3");
+        assertThat(result).extracting("teamName").containsExactly("teamF");
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void searchPageConcurrent() {
+        // count 는 다른 커넥션에서 실행되므로 커밋된 데이터로 확인
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        Team teamG = tx.execute(status -> {
+            Team team = new Team("teamG");
+            em.persist(team);
+            for (int i = 0; i < 3; i++) {
+                em.persist(new Member("member" + i, 10 * i, team));
+            }
+            return team;
+        });
+
+        try {
+            MemberSearchCondition condition = new MemberSearchCondition();
+            condition.setTeamName("teamG");
 
-}
\ No newline at end of file
+            Page<MemberTeamDTO> result = memberRepository.searchPageConcurrent(condition, PageRequest.of(0, 2));
+            assertThat(result.getTotalElements()).isEqualTo(3);
+            assertThat(result.getContent()).extracting("username").containsExactly("member0", "member1");
+
+            // 마지막 페이지는 count 없이 total 계산
+            Page<MemberTeamDTO> last = memberRepository.searchPageConcurrent(condition, PageRequest.of(0, 10));
+            assertThat(last.getTotalElements()).isEqualTo(3);
+        } finally {
+            tx.executeWithoutResult(status -> new JPAQueryFactory(em)
+                    .delete(member)
+                    .where(member.team.id.eq(teamG.getId()))
+                    .execute());
+            tx.executeWithoutResult(status -> em.remove(em.find(Team.class, teamG.getId())));
+        }
+    }
+
+    @Test
+    public void searchPageConcurrentInWriteTransaction() {
+        Team teamH = new Team("teamH");
+        em.persist(teamH);
+        em.persist(new Member("member1", 10, teamH));
+        em.persist(new Member("member2", 20, teamH));
+        em.flush();
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamH");
+
+        // 커밋 전 데이터 -> 다른 커넥션이 아닌 현재 트랜잭션에서 count
+        Page<MemberTeamDTO> result = memberRepository.searchPageConcurrent(condition, PageRequest.of(0, 1));
+        assertThat(result.getTotalElements()).isEqualTo(2);
+    }
+
+    @Test
+    public void searchSliceAndEstimated() {
+        Team teamI = new Team("teamI");
+        em.persist(teamI);
+        for (int i = 0; i < 8; i++) {
+            em.persist(new Member("member" + i, 10 * i, teamI));
+        }
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamI");
+
+        Slice<MemberTeamDTO> first = memberRepository.searchSlice(condition, PageRequest.of(0, 3));
+        assertThat(first.getContent()).hasSize(3);
+        assertThat(first.hasNext()).isTrue();
+        Slice<MemberTeamDTO> last = memberRepository.searchSlice(condition, PageRequest.of(2, 3));
+        assertThat(last.getContent()).hasSize(2);
+        assertThat(last.hasNext()).isFalse();
+
+        // 테스트 설정은 cap 5 -> 8건은 "5건 이상"
+        EstimatedPageDTO<MemberTeamDTO> capped = memberRepository.searchEstimated(condition, PageRequest.of(0, 3));
+        assertThat(capped.getTotal()).isEqualTo(5);
+        assertThat(capped.isExact()).isFalse();
+
+        EstimatedPageDTO<MemberTeamDTO> lastPage = memberRepository.searchEstimated(condition, PageRequest.of(0, 10));
+        assertThat(lastPage.getTotal()).isEqualTo(8);
+        assertThat(lastPage.isExact()).isTrue();
+
+        // 결과 끝을 넘은 빈 페이지 -> offset 이 아니라 cap 까지 센 값
+        EstimatedPageDTO<MemberTeamDTO> pastEnd = memberRepository.searchEstimated(condition, PageRequest.of(5, 3));
+        assertThat(pastEnd.getContent()).isEmpty();
+        assertThat(pastEnd.getTotal()).isEqualTo(5);
+        assertThat(pastEnd.isExact()).isFalse();
+
+        condition.setAgeGoe(50);
+        EstimatedPageDTO<MemberTeamDTO> small = memberRepository.searchEstimated(condition, PageRequest.of(0, 1));
+        assertThat(small.getTotal()).isEqualTo(3);
+        assertThat(small.isExact()).isTrue();
+    }
+
+    @Test
+    public void searchPageDeferredJoin() {
+        Team teamJ = new Team("teamJ");
+        em.persist(teamJ);
+        for (int i = 0; i < 10; i++) {
+            em.persist(new Member("member" + i, i, teamJ));
+        }
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamJ");
+        MemberSearchQuery searchQuery = MemberSearchQuery.of(new JPAQueryFactory(em), condition);
+
+        // 두 단계로 나눠도 같은 행이 같은 순서로
+        List<MemberTeamDTO> deferred = searchQuery.fetchPageDeferred(3, 4);
+        assertThat(deferred).extracting("username").containsExactly("member3", "member4", "member5", "member6");
+        assertThat(deferred).extracting("teamName").containsOnly("teamJ");
+        assertThat(deferred).usingRecursiveFieldByFieldElementComparator()
+                .containsExactlyElementsOf(searchQuery.fetchPage(3, 4));
+        assertThat(searchQuery.fetchPageDeferred(10, 4)).isEmpty();
+    }
+
+    @Test
+    public void searchPageSort() {
+        Team teamK = new Team("teamK");
+        em.persist(teamK);
+        em.persist(new Member("member1", 30, teamK));
+        em.persist(new Member("member2", 20, teamK));
+        em.persist(new Member("member3", 30, teamK));
+        em.persist(new Member("member4", 10, teamK));
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamK");
+
+        // 같은 age(30) 는 member.id 로 같은 방향(desc) 정렬
+        PageRequest byAgeDesc = PageRequest.of(0, 3, Sort.by(Sort.Direction.DESC, "age"));
+        assertThat(memberRepository.searchPageComplex(condition, byAgeDesc).getContent())
+                .extracting("username").containsExactly("member3", "member1", "member2");
+
+        PageRequest byUsername = PageRequest.of(1, 2, Sort.by("username"));
+        assertThat(memberRepository.searchPageSimple(condition, byUsername).getContent())
+                .extracting("username").containsExactly("member3", "member4");
+
+        // deferred join 도 같은 순서
+        MemberSearchQuery searchQuery = MemberSearchQuery.of(new JPAQueryFactory(em), condition);
+        assertThat(searchQuery.fetchPageDeferred(1, 2, byAgeDesc.getSort()))
+                .extracting("username").containsExactly("member1", "member2");
+
+        assertThatThrownBy(() -> memberRepository.searchPageSimple(condition,
+                PageRequest.of(0, 3, Sort.by("teamName"))))
+                .isInstanceOf(UnsupportedSortException.class);
+        assertThatThrownBy(() -> memberRepository.searchPageSimple(condition,
+                PageRequest.of(0, 3, Sort.by(Sort.Order.asc("username").ignoreCase()))))
+                .isInstanceOf(UnsupportedSortException.class);
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void searchResultCache() throws Exception {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        Team teamL = tx.execute(status -> {
+            Team team = new Team("teamL");
+            em.persist(team);
+            em.persist(new Member("member1", 10, team));
+            em.persist(new Member("member2", 20, team));
+            return team;
+        });
+
+        try {
+            MemberSearchCondition condition = new MemberSearchCondition();
+            condition.setTeamName("teamL");
+            PageRequest pageRequest = PageRequest.of(0, 1);
+
+            long hits = resultCache.stats().get("hits").longValue();
+            long misses = resultCache.stats().get("misses").longValue();
+            assertThat(memberRepository.searchPageSimple(condition, pageRequest).getTotalElements()).isEqualTo(2);
+            assertThat(memberRepository.searchPageSimple(condition, pageRequest).getTotalElements()).isEqualTo(2);
+            assertThat(resultCache.stats().get("misses").longValue()).isEqualTo(misses + 1);
+            assertThat(resultCache.stats().get("hits").longValue()).isEqualTo(hits + 1);
+
+            // 캐시된 DTO 는 요청마다 복사본 -> 한 요청이 바꿔도 다른 요청에는 보이지 않는다
+            memberRepository.searchPageSimple(condition, pageRequest).getContent().get(0).setUsername("changed");
+            assertThat(memberRepository.searchPageSimple(condition, pageRequest).getContent())
+                    .extracting("username").doesNotContain("changed");
+
+            // 커밋된 save -> 무효화
+            tx.executeWithoutResult(status -> em.persist(new Member("member3", 30, em.find(Team.class, teamL.getId()))));
+            assertThat(memberRepository.searchPageSimple(condition, pageRequest).getTotalElements()).isEqualTo(3);
+
+            // 같은 key 동시 miss -> loader 는 한 번만
+            int threads = 8;
+            long coalesced = resultCache.stats().get("coalesced").longValue();
+            AtomicInteger loads = new AtomicInteger();
+            CountDownLatch release = new CountDownLatch(1);
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            try {
+                List<Future<String>> results = new ArrayList<>();
+                for (int i = 0; i < threads; i++) {
+                    results.add(executor.submit(() -> resultCache.get("coalescing", condition, pageRequest, () -> {
+                        loads.incrementAndGet();
+                        await(release);
+                        return "result";
+                    }, UnaryOperator.identity())));
+                }
+                // 나머지 요청이 모두 진행 중인 조회를 기다리기 시작할 때까지
+                long deadline = System.currentTimeMillis() + 5000;
+                while (resultCache.stats().get("coalesced").longValue() < coalesced + threads - 1
+                        && System.currentTimeMillis() < deadline) {
+                    Thread.sleep(10);
+                }
+                release.countDown();
+                for (Future<String> result : results) {
+                    assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("result");
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+            assertThat(loads.get()).isEqualTo(1);
+            assertThat(resultCache.stats().get("coalesced").longValue()).isEqualTo(coalesced + threads - 1);
+        } finally {
+            tx.executeWithoutResult(status -> new JPAQueryFactory(em)
+                    .delete(member)
+                    .where(member.team.id.eq(teamL.getId()))
+                    .execute());
+            tx.executeWithoutResult(status -> em.remove(em.find(Team.class, teamL.getId())));
+        }
+    }
+
+    @Test
+    public void teamAggregateDerivedTable() {
+        Team teamO = new Team("teamO");
+        Team teamP = new Team("teamP");
+        em.persist(teamO);
+        em.persist(teamP);
+        em.persist(new Member("member1", 10, teamO));
+        em.persist(new Member("member2", 20, teamO));
+        em.persist(new Member("member3", 30, teamO));
+        em.persist(new Member("member4", 30, teamO));
+        em.persist(new Member("member5", 5, teamP));
+        em.persist(new Member("member6", 15, teamP));
+        em.flush();
+
+        // teamO 평균 22.5, teamP 평균 10
+        List<MemberTeamDTO> olderThanAverage = ofTeams(memberRepository.findOlderThanTeamAverage());
+        assertThat(olderThanAverage).extracting("username").containsExactly("member3", "member4", "member6");
+        assertThat(olderThanAverage).extracting("teamName").containsExactly("teamO", "teamO", "teamP");
+
+        List<MemberTeamDTO> oldest = ofTeams(memberRepository.findOldestPerTeam());
+        assertThat(oldest).extracting("username").containsExactly("member3", "member4", "member6");
+
+        // 상관 서브쿼리와 같은 결과
+        QMember memberSub = new QMember("memberSub");
+        List<MemberTeamDTO> subQuery = new JPAQueryFactory(em)
+                .select(new QMemberTeamDTO(member.id, member.username, member.age, team.id, team.name))
+                .from(member)
+                .join(member.team, team)
+                .where(member.age.gt(JPAExpressions
+                        .select(memberSub.age.avg())
+                        .from(memberSub)
+                        .where(memberSub.team.eq(member.team))))
+                .orderBy(member.id.asc())
+                .fetch();
+        assertThat(olderThanAverage).isEqualTo(ofTeams(subQuery));
+    }
+
+    private static List<MemberTeamDTO> ofTeams(List<MemberTeamDTO> result) {
+        return result.stream()
+                .filter(dto -> dto.getTeamName().equals("teamO") || dto.getTeamName().equals("teamP"))
+                .collect(Collectors.toList());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.shlee.querydsl.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// 실제로 고른 plan(type, key)은 행 수/통계에 따라 달라진다 (빈 테이블이면 mysql 은 full scan)
+// -> 쓸 수 있는 인덱스가 있는지(possible_keys)만 확인
+@SpringBootTest
+class MemberSearchIndexAdvisorTest {
+
+    @Autowired
+    MemberSearchIndexAdvisor advisor;
+
+    @Test
+    public void explainAllShapes() throws Exception {
+        List<MemberSearchIndexAdvisor.Finding> findings = advisor.explainAll();
+
+        // shape 16개 x (content, ids, count)
+        assertThat(findings).hasSize(48);
+        // 조건이 하나라도 있으면 인덱스를 쓸 수 있다 (조건 없는 전체 검색만 인덱스 없는 full scan 허용)
+        assertThat(findings)
+                .filteredOn(f -> !f.getShape().equals("(none)"))
+                .allMatch(f -> f.getUnindexed().isEmpty());
+        // team.name 조건은 team 이름 인덱스를 쓸 수 있다
+        assertThat(findings)
+                .filteredOn(f -> f.getShape().equals("teamName"))
+                .allMatch(f -> f.getPlan().toLowerCase().contains("idx_team_name"));
+    }
+}
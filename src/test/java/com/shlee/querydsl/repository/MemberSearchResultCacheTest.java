@@ -0,0 +1,111 @@
+package com.shlee.querydsl.repository;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.shlee.querydsl.dto.MemberSearchCondition;
+import com.shlee.querydsl.dto.MemberTeamDTO;
+import com.shlee.querydsl.entity.Member;
+import com.shlee.querydsl.entity.Team;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static com.shlee.querydsl.entity.QMember.member;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+// 같은 검색이 커넥션 풀보다 많이 몰려도 기다리는 요청은 커넥션을 잡지 않는다
+@SpringBootTest
+class MemberSearchResultCacheTest {
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MemberSearchResultCache resultCache;
+
+    @Autowired
+    DataSource dataSource;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    // 먼저 온 요청의 조회(count)를 release 까지 멈춘다
+    @SpyBean
+    MemberCountCache countCache;
+
+    @Test
+    public void waitersDoNotHoldConnections() throws Exception {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        Team teamQ = tx.execute(status -> {
+            Team team = new Team("teamQ");
+            em.persist(team);
+            em.persist(new Member("member1", 10, team));
+            em.persist(new Member("member2", 20, team));
+            return team;
+        });
+
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            loading.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            return invocation.callRealMethod();
+        }).when(countCache).get(any(), any());
+
+        HikariDataSource hikari = dataSource.unwrap(HikariDataSource.class);
+        int threads = hikari.getMaximumPoolSize() * 2;
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamQ");
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            long coalesced = resultCache.stats().get("coalesced").longValue();
+            List<Future<Page<MemberTeamDTO>>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> memberRepository.searchPageSimple(condition, PageRequest.of(0, 1))));
+            }
+            assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+            long deadline = System.currentTimeMillis() + 5000;
+            while (resultCache.stats().get("coalesced").longValue() < coalesced + threads - 1
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertThat(resultCache.stats().get("coalesced").longValue()).isEqualTo(coalesced + threads - 1);
+
+            // 조회 중인 요청 하나만 커넥션을 쓴다
+            assertThat(hikari.getHikariPoolMXBean().getActiveConnections()).isLessThanOrEqualTo(1);
+
+            release.countDown();
+            for (Future<Page<MemberTeamDTO>> result : results) {
+                assertThat(result.get(10, TimeUnit.SECONDS).getTotalElements()).isEqualTo(2);
+            }
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+            tx.executeWithoutResult(status -> new JPAQueryFactory(em)
+                    .delete(member)
+                    .where(member.team.id.eq(teamQ.getId()))
+                    .execute());
+            tx.executeWithoutResult(status -> em.remove(em.find(Team.class, teamQ.getId())));
+        }
+    }
+}
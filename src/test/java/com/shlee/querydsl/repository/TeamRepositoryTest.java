@@ -0,0 +1,121 @@
+package com.shlee.querydsl.repository;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.shlee.querydsl.dto.MemberDTO;
+import com.shlee.querydsl.dto.TeamRosterDTO;
+import com.shlee.querydsl.entity.Member;
+import com.shlee.querydsl.entity.Team;
+import com.shlee.querydsl.monitoring.SqlScope;
+import com.shlee.querydsl.monitoring.SqlStatementCounter;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.Cache;
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static com.shlee.querydsl.entity.QMember.member;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class TeamRepositoryTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    TeamRepository teamRepository;
+
+    @Autowired
+    SqlStatementCounter counter;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Test
+    public void findRosters() {
+        for (int i = 0; i < 5; i++) {
+            Team team = new Team("rosterTeam" + i);
+            em.persist(team);
+            for (int j = 0; j < 3; j++) {
+                em.persist(new Member("roster" + i + "_" + j, 10 * i + j, team));
+            }
+        }
+        em.flush();
+        em.clear();
+
+        Page<TeamRosterDTO> result;
+        try (SqlScope scope = counter.open("findRosters")) {
+            result = teamRepository.findRosters(PageRequest.of(0, 100));
+            // team 페이지 + member IN 쿼리 (마지막 페이지라 count 는 생략)
+            assertThat(scope.getStatementCount()).isEqualTo(2);
+        }
+
+        List<TeamRosterDTO> rosters = result.getContent().stream()
+                .filter(r -> r.getTeamName().startsWith("rosterTeam"))
+                .collect(Collectors.toList());
+        assertThat(rosters).extracting("teamName")
+                .containsExactly("rosterTeam0", "rosterTeam1", "rosterTeam2", "rosterTeam3", "rosterTeam4");
+        assertThat(rosters.get(2).getMembers()).extracting(MemberDTO::getUsername)
+                .containsExactly("roster2_0", "roster2_1", "roster2_2");
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void secondLevelCache() {
+        // 같은 트랜잭션에서 insert 한 엔티티는 2차 캐시에 올라가지 않아서 커밋된 데이터로 확인
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        Member saved = tx.execute(status -> {
+            Team team = new Team("cacheTeam");
+            em.persist(team);
+            Member member = new Member("cacheMember", 20, team);
+            em.persist(member);
+            return member;
+        });
+        Long memberId = saved.getId();
+        Long teamId = saved.getTeam().getId();
+        Cache cache = em.getEntityManagerFactory().getCache();
+
+        try {
+            tx.executeWithoutResult(status -> {
+                em.find(Member.class, memberId).getTeam().getName();
+                teamRepository.findByName("cacheTeam");
+            });
+            assertThat(cache.contains(Member.class, memberId)).isTrue();
+            assertThat(cache.contains(Team.class, teamId)).isTrue();
+
+            // 엔티티, 쿼리 캐시 모두 DB 를 거치지 않는다
+            tx.executeWithoutResult(status -> {
+                try (SqlScope scope = counter.open("secondLevelCache")) {
+                    Member findMember = em.find(Member.class, memberId);
+                    assertThat(findMember.getTeam().getName()).isEqualTo("cacheTeam");
+                    assertThat(teamRepository.findByName("cacheTeam")).isPresent();
+                    assertThat(scope.getStatementCount()).isZero();
+                }
+            });
+
+            // querydsl 벌크 update 는 member 리전만 비운다
+            tx.executeWithoutResult(status -> new JPAQueryFactory(em)
+                    .update(member)
+                    .set(member.age, 21)
+                    .where(member.id.eq(memberId))
+                    .execute());
+            assertThat(cache.contains(Member.class, memberId)).isFalse();
+            assertThat(cache.contains(Team.class, teamId)).isTrue();
+        } finally {
+            tx.executeWithoutResult(status -> {
+                em.remove(em.find(Member.class, memberId));
+                em.remove(em.find(Team.class, teamId));
+            });
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.shlee.querydsl.repository;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.shlee.querydsl.dto.TeamStatsDTO;
+import com.shlee.querydsl.entity.Member;
+import com.shlee.querydsl.entity.Team;
+import com.shlee.querydsl.entity.TeamStats;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+
+import static com.shlee.querydsl.entity.QMember.member;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+// team_stats 는 커밋 직전에 반영되므로 테스트 트랜잭션 없이 커밋된 데이터로 확인
+@SpringBootTest
+class TeamStatsRepositoryTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    TeamStatsRepository teamStatsRepository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    TransactionTemplate tx;
+    Long teamAId;
+    Long teamBId;
+
+    @BeforeEach
+    public void before() {
+        tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(status -> {
+            Team teamA = new Team("statsTeamA");
+            Team teamB = new Team("statsTeamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            em.persist(new Member("member1", 10, teamA));
+            em.persist(new Member("member2", 20, teamA));
+            em.persist(new Member("member3", 30, teamA));
+            teamAId = teamA.getId();
+            teamBId = teamB.getId();
+        });
+    }
+
+    @AfterEach
+    public void after() {
+        tx.executeWithoutResult(status -> {
+            new JPAQueryFactory(em)
+                    .delete(member)
+                    .where(member.team.id.in(teamAId, teamBId))
+                    .execute();
+            em.remove(em.find(Team.class, teamAId));
+            em.remove(em.find(Team.class, teamBId));
+        });
+        assertThat(stored(teamAId)).isNull();
+    }
+
+    @Test
+    public void incrementalUpdates() {
+        assertStored(teamAId, 3, 60, 10, 30, false);
+        assertStored(teamBId, 0, 0, null, null, false);
+
+        // age 변경: min/max 가 아닌 값 -> 증분만
+        tx.executeWithoutResult(status -> findMember("member2").setAge(25));
+        assertStored(teamAId, 3, 65, 10, 30, false);
+
+        // insert: 새 min
+        tx.executeWithoutResult(status -> em.persist(new Member("member4", 5, em.find(Team.class, teamAId))));
+        assertStored(teamAId, 4, 70, 5, 30, false);
+
+        // changeTeam: 두 team 모두, 빠진 값(30)이 max 였으므로 teamA 는 stale
+        tx.executeWithoutResult(status -> findMember("member3").changeTeam(em.find(Team.class, teamBId)));
+        assertStored(teamAId, 3, 40, 5, 30, true);
+        assertStored(teamBId, 1, 30, 30, 30, false);
+
+        // 읽을 때 stale 만 다시 계산
+        TeamStatsDTO teamA = teamStatsRepository.findByTeamId(teamAId).get();
+        assertThat(teamA.getMemberCount()).isEqualTo(3);
+        assertThat(teamA.getAgeAvg()).isEqualTo(40 / 3.0);
+        assertThat(teamA.getMaxAge()).isEqualTo(25);
+        assertStored(teamAId, 3, 40, 5, 25, false);
+
+        // delete: max 가 아닌 값 -> 증분만
+        tx.executeWithoutResult(status -> em.remove(findMember("member1")));
+        assertStored(teamAId, 2, 30, 5, 25, false);
+    }
+
+    @Test
+    public void bulkUpdateMarksStale() {
+        tx.executeWithoutResult(status -> new JPAQueryFactory(em)
+                .update(member)
+                .set(member.age, member.age.add(1))
+                .where(member.team.id.eq(teamAId))
+                .execute());
+        assertThat(stored(teamAId).isStale()).isTrue();
+        assertThat(stored(teamBId).isStale()).isTrue();
+
+        assertThat(teamStatsRepository.findAll())
+                .filteredOn(stats -> stats.getTeamId().equals(teamAId))
+                .extracting("memberCount", "minAge", "maxAge")
+                .containsExactly(tuple(3L, 11, 31));
+        assertStored(teamAId, 3, 63, 11, 31, false);
+        assertStored(teamBId, 0, 0, null, null, false);
+    }
+
+    @Test
+    public void missingRowBecomesStale() {
+        // team_stats 가 생기기 전의 team
+        tx.executeWithoutResult(status -> em.remove(em.find(TeamStats.class, teamAId)));
+
+        // 증분을 더할 행이 없으면 버리지 않고 stale 행을 만든다
+        tx.executeWithoutResult(status -> em.persist(new Member("member4", 40, em.find(Team.class, teamAId))));
+        assertStored(teamAId, 0, 0, null, null, true);
+
+        TeamStatsDTO teamA = teamStatsRepository.findByTeamId(teamAId).get();
+        assertThat(teamA.getMemberCount()).isEqualTo(4);
+        assertStored(teamAId, 4, 100, 10, 40, false);
+
+        // 읽을 때 행이 없으면 stale 행을 먼저 만들고 다시 계산
+        tx.executeWithoutResult(status -> em.remove(em.find(TeamStats.class, teamAId)));
+        assertThat(teamStatsRepository.findByTeamId(teamAId).get().getMemberCount()).isEqualTo(4);
+        assertStored(teamAId, 4, 100, 10, 40, false);
+    }
+
+    @Test
+    public void rollbackDoesNotApply() {
+        TransactionTemplate rollback = new TransactionTemplate(transactionManager);
+        rollback.executeWithoutResult(status -> {
+            em.persist(new Member("member9", 99, em.find(Team.class, teamAId)));
+            em.flush();
+            status.setRollbackOnly();
+        });
+        assertStored(teamAId, 3, 60, 10, 30, false);
+    }
+
+    private Member findMember(String username) {
+        return new JPAQueryFactory(em)
+                .selectFrom(member)
+                .where(member.username.eq(username), member.team.id.in(teamAId, teamBId))
+                .fetchOne();
+    }
+
+    private TeamStats stored(Long teamId) {
+        return tx.execute(status -> em.find(TeamStats.class, teamId));
+    }
+
+    private void assertStored(Long teamId, long count, long sum, Integer min, Integer max, boolean stale) {
+        TeamStats stats = stored(teamId);
+        assertThat(stats.getMemberCount()).isEqualTo(count);
+        assertThat(stats.getAgeSum()).isEqualTo(sum);
+        assertThat(stats.getMinAge()).isEqualTo(min);
+        assertThat(stats.getMaxAge()).isEqualTo(max);
+        assertThat(stats.isStale()).isEqualTo(stale);
+    }
+}